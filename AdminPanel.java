@@ -18,6 +18,9 @@ import javax.swing.JButton;
  * groups, and the visitor. The admin panel is implemented with a Singleton Pattern, since it only needs to be instantiated once in 
  * the program. Admin Panel includes three more panels that include the User tree, buttons for adding users, groups and opening a user view, 
  * as well as buttons for showing the analysis.
+ * If any retention limits are set through the "minitwitter.retention.*" system properties, the Admin Panel also starts
+ * a FeedTrimmer that keeps news feeds within those limits in the background. It also starts recomputing every
+ * User's follow suggestions every "minitwitter.suggestions.recomputePeriodMillis", unless that is set to 0.
  */
 public class AdminPanel
 {
@@ -28,6 +31,7 @@ public class AdminPanel
 	private UserTreeNode rootNode;
 	private UserTreeNode lastSelected;
 	private AnalysisVisitor visitor;
+	private FeedTrimmer feedTrimmer;
 
 	/** public getInstance() to reference the same instance of the Admin panel */
 	public static AdminPanel getInstance() {
@@ -47,6 +51,17 @@ public class AdminPanel
 
 		visitor = new AnalysisVisitor();
 
+		RetentionPolicy retentionPolicy = RetentionPolicy.fromSystemProperties();
+		if (!retentionPolicy.isUnlimited()) {
+			feedTrimmer = new FeedTrimmer(retentionPolicy);
+			feedTrimmer.start(Long.getLong("minitwitter.retention.trimPeriodMillis", 60000));
+		}
+
+		long recomputePeriodMillis = Long.getLong("minitwitter.suggestions.recomputePeriodMillis", 300000);
+		if (recomputePeriodMillis > 0) {
+			FollowRecommender.getInstance().start(recomputePeriodMillis);
+		}
+
 		frame.setSize(800, 500);
 		adminPanel.setLayout(new BoxLayout(adminPanel, BoxLayout.X_AXIS));
 
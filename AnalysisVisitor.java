@@ -40,6 +40,19 @@ public class AnalysisVisitor
 		return this.newsFeedCount;
 	}
 
+	/** Returns the number of positive messages */
+	public int getPositiveCount() {
+		return this.positiveCount;
+	}
+
+	/** Adds counts collected elsewhere, such as by another shard, to this visitor's counts */
+	public void addCounts(int userCount, int userGroupCount, int newsFeedCount, int positiveCount) {
+		this.userCount += userCount;
+		this.userGroupCount += userGroupCount;
+		this.newsFeedCount += newsFeedCount;
+		this.positiveCount += positiveCount;
+	}
+
 	/** Adds 1 to user count when visited */
 	public void visitUser(User user) {
 		userCount++;
@@ -62,11 +75,12 @@ public class AnalysisVisitor
 	/** Adds the number of messages for a user to the count, and gets the number of positive messages
 	 * within those.
 	 */
-	public void visitNewsFeed(List<String> newsFeed) {
+	public void visitNewsFeed(List<Post> newsFeed) {
 		newsFeedCount += newsFeed.size();
-		for (String post : newsFeed) {
+		for (Post post : newsFeed) {
+			String message = post.getMessage();
 			for (String positiveWord : POSITIVE_WORDS) {
-				if (post.contains(positiveWord)) {
+				if (message.contains(positiveWord)) {
 					positiveCount++;
 					break;
 				}
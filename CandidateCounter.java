@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+/**
+ * CandidateCounter is a primitive count map from User index to the number of followed Users that also follow that
+ * User, used by the FollowRecommender. Counts live in an int array sized by the number of Users, and the touched
+ * indexes are remembered so the map can be cleared without walking the whole array.
+ * A counter is reused for many Users, but must only be used by one thread at a time.
+ */
+public class CandidateCounter
+{
+	/** Marks the User and the Users it already follows, so they are never suggested */
+	private static final int EXCLUDED = -1;
+
+	private int[] counts;
+	private int[] touched;
+	private int touchedCount;
+
+	public CandidateCounter(int userCount) {
+		counts = new int[Math.max(userCount, 1)];
+		touched = new int[16];
+	}
+
+	/** Excludes a User index from the suggestions, however many times it is excluded or counted */
+	public void exclude(int userIndex) {
+		touch(userIndex);
+		counts[userIndex] = EXCLUDED;
+	}
+
+	/** Counts one more followed User that follows the candidate, unless the candidate is excluded */
+	public void increment(int userIndex) {
+		touch(userIndex);
+		if (counts[userIndex] != EXCLUDED) {
+			counts[userIndex]++;
+		}
+	}
+
+	/** Returns the up to limit candidates with the highest counts, then clears the counter */
+	public FollowSuggestions takeTop(int limit) {
+		int[] topUsers = new int[limit];
+		int[] topCounts = new int[limit];
+		int size = 0;
+
+		for (int t = 0; t < touchedCount; t++) {
+			int userIndex = touched[t];
+			int count = counts[userIndex];
+			counts[userIndex] = 0;
+			if (count <= 0 || (size == limit && count <= topCounts[size - 1])) {
+				continue;
+			}
+
+			int position = size < limit ? size++ : size - 1;
+			while (position > 0 && topCounts[position - 1] < count) {
+				topUsers[position] = topUsers[position - 1];
+				topCounts[position] = topCounts[position - 1];
+				position--;
+			}
+			topUsers[position] = userIndex;
+			topCounts[position] = count;
+		}
+		touchedCount = 0;
+
+		return new FollowSuggestions(Arrays.copyOf(topUsers, size), Arrays.copyOf(topCounts, size));
+	}
+
+	/** Private helper that grows the counts to hold the index and remembers the index the first time it is used */
+	private void touch(int userIndex) {
+		if (userIndex >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(userIndex + 1, counts.length * 2));
+		}
+		if (counts[userIndex] == 0) {
+			if (touchedCount == touched.length) {
+				touched = Arrays.copyOf(touched, touchedCount * 2);
+			}
+			touched[touchedCount++] = userIndex;
+		}
+	}
+}
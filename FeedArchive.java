@@ -0,0 +1,119 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FeedArchive writes posts evicted from news feeds to disk, one file per User named after the User's ID,
+ * so cold feeds can leave memory without being lost. Each post is appended as
+ * [author index][post time][body length][UTF-8 body].
+ * The posts are evicted from the front of a feed, so a User's file always holds the posts just before the oldest
+ * one left in the feed, and restoreNewest() hands them back when the feed is read that far back.
+ * Users are not saved between runs and get a new random ID every run, so archive files only last for the run and
+ * are deleted when the program exits.
+ */
+public class FeedArchive
+{
+	/** Bytes written before each body: author index, post time and body length */
+	private static final int RECORD_HEADER_SIZE = 16;
+
+	private final File directory;
+
+	public FeedArchive(File directory) {
+		this.directory = directory;
+	}
+
+	/** Appends the posts to the User's archive file, oldest first */
+	public synchronized void archive(User user, List<Post> posts) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create archive directory " + directory);
+		}
+
+		File archiveFile = getArchiveFile(user);
+		if (!archiveFile.exists()) {
+			archiveFile.deleteOnExit();
+		}
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(archiveFile, true)))) {
+			for (Post post : posts) {
+				byte[] body = post.getMessage().getBytes(StandardCharsets.UTF_8);
+				out.writeInt(post.getAuthorIndex());
+				out.writeLong(post.getPostTime());
+				out.writeInt(body.length);
+				out.write(body);
+			}
+		}
+	}
+
+	/** Reads back every archived post for the User, oldest first */
+	public synchronized List<Post> read(User user) throws IOException {
+		return read(getArchiveFile(user), null);
+	}
+
+	/**
+	 * Removes up to count of the newest archived posts for the User from the archive and returns them, oldest first.
+	 * The file is deleted once it is empty.
+	 */
+	public synchronized List<Post> restoreNewest(User user, int count) throws IOException {
+		File archiveFile = getArchiveFile(user);
+		List<Long> offsets = new ArrayList<>();
+		List<Post> posts = read(archiveFile, offsets);
+		int first = Math.max(0, posts.size() - Math.max(count, 0));
+		List<Post> restored = new ArrayList<>(posts.subList(first, posts.size()));
+
+		if (first == 0) {
+			if (archiveFile.exists() && !archiveFile.delete()) {
+				throw new IOException("Could not delete archive file " + archiveFile);
+			}
+		}
+		else {
+			try (RandomAccessFile file = new RandomAccessFile(archiveFile, "rw")) {
+				file.setLength(offsets.get(first));
+			}
+		}
+		return restored;
+	}
+
+	/** Private helper that reads every post in a file, oldest first, recording where each one starts if asked */
+	private List<Post> read(File archiveFile, List<Long> offsets) throws IOException {
+		List<Post> posts = new ArrayList<>();
+		if (!archiveFile.exists()) {
+			return posts;
+		}
+
+		long offset = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(archiveFile)))) {
+			while (true) {
+				int authorIndex;
+				try {
+					authorIndex = in.readInt();
+				}
+				catch (EOFException e) {
+					break;
+				}
+				long postTime = in.readLong();
+				byte[] body = new byte[in.readInt()];
+				in.readFully(body);
+				posts.add(new Post(authorIndex, body, postTime));
+				if (offsets != null) {
+					offsets.add(offset);
+				}
+				offset += RECORD_HEADER_SIZE + body.length;
+			}
+		}
+		return posts;
+	}
+
+	private File getArchiveFile(User user) {
+		return new File(directory, user.getID() + ".feed");
+	}
+}
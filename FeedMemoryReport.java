@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FeedMemoryReport is a small command line report that compares the heap footprint of a news feed entry
+ * when every follower gets its own "author: message" String (the previous behavior) against the shared Post
+ * entries used now. Run it with: java FeedMemoryReport [followers] [posts]
+ * Add -Dminitwitter.messageStore=offheap to measure the off-heap message store, whose bodies are reported separately.
+ */
+public class FeedMemoryReport
+{
+	private static final String MESSAGE = "Having a great day at the park, the weather is nice!";
+	private static final int ARRAY_HEADER_BYTES = 16;
+
+	public static void main(String[] args) {
+		int followerCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int postCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		long entryCount = (long) followerCount * postCount;
+
+		double before = measureStringFeeds(followerCount, postCount) / (double) entryCount;
+		double after = measureSharedFeeds(followerCount, postCount) / (double) entryCount;
+
+		System.out.println("Followers: " + followerCount + ", Posts: " + postCount + ", Feed entries: " + entryCount);
+		System.out.printf("Before (String per entry): %.1f bytes per feed entry%n", before);
+		System.out.printf("After (shared post IDs):   %.1f heap bytes per feed entry%n", after);
+		if (User.getMessageStore() instanceof OffHeapMessageStore) {
+			long offHeapBytes = ((OffHeapMessageStore) User.getMessageStore()).getLiveBytes();
+			System.out.printf("Off-heap message bodies:   %.1f bytes per feed entry%n", offHeapBytes / (double) entryCount);
+		}
+	}
+
+	/** Builds one concatenated String per follower per post, the way feeds were filled before */
+	private static long measureStringFeeds(int followerCount, int postCount) {
+		String posterName = "poster";
+		List<List<String>> feeds = new ArrayList<>(followerCount);
+		for (int i = 0; i < followerCount; i++) {
+			feeds.add(new ArrayList<>());
+		}
+
+		long baseline = usedMemory();
+		for (int p = 0; p < postCount; p++) {
+			String update = MESSAGE + " #" + p;
+			for (List<String> feed : feeds) {
+				feed.add(posterName + ": " + update);
+			}
+		}
+		long used = usedMemory() - baseline;
+
+		// keep the feeds reachable until after the measurement
+		System.out.println("Built " + feeds.size() + " String feeds");
+		return used;
+	}
+
+	/**
+	 * Posts through a real User so every follower's feed shares the same Post. Each NewsFeed allocates its post ID
+	 * array up front, unlike the lazily sized ArrayLists above, so those arrays are taken out of the baseline and
+	 * counted as feed storage.
+	 */
+	private static long measureSharedFeeds(int followerCount, int postCount) {
+		User poster = new User("poster");
+		for (int i = 0; i < followerCount; i++) {
+			new User("follower" + i).followUser(poster);
+		}
+
+		long presizedFeedBytes = 0;
+		for (User follower : poster.getFollowers()) {
+			presizedFeedBytes += ARRAY_HEADER_BYTES + follower.getNewsFeed().getMemoryUsage();
+		}
+		long baseline = usedMemory() - presizedFeedBytes;
+		for (int p = 0; p < postCount; p++) {
+			poster.post(MESSAGE + " #" + p);
+		}
+		long used = usedMemory() - baseline;
+
+		System.out.println("Built " + poster.getFollowers().size() + " shared feeds");
+		return used;
+	}
+
+	/** Returns the heap currently in use after asking the garbage collector to settle */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
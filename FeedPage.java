@@ -0,0 +1,56 @@
+import java.util.AbstractList;
+
+/**
+ * FeedPage is a read-only window onto a contiguous run of a NewsFeed, returned by the feed's paging methods.
+ * No posts are copied when a page is created; each Post is looked up from the message store when it is read.
+ * Positions in a feed are identified by cursors, which count every post ever delivered to the feed, so a cursor
+ * stays meaningful as new posts arrive. A page should be read on the UI thread before the next FeedTrimmer pass,
+ * which may remove the posts it covers.
+ */
+public class FeedPage extends AbstractList<Post>
+{
+	private final NewsFeed newsFeed;
+	private final long firstCursor;
+	private final int count;
+	private final boolean newestFirst;
+
+	/** Constructor for a page covering count posts starting at firstCursor, read in the given order */
+	public FeedPage(NewsFeed newsFeed, long firstCursor, int count, boolean newestFirst) {
+		this.newsFeed = newsFeed;
+		this.firstCursor = firstCursor;
+		this.count = count;
+		this.newestFirst = newestFirst;
+	}
+
+	@Override
+	public Post get(int index) {
+		return newsFeed.getPostAt(cursorOf(index));
+	}
+
+	/** Returns the post ID at the given position of the page */
+	public int getPostID(int index) {
+		return newsFeed.getPostIDAt(cursorOf(index));
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	/** Returns the cursor to pass to getPage() for the posts older than this page */
+	public long getOlderCursor() {
+		return firstCursor;
+	}
+
+	/** Returns the cursor to pass to getSince() for the posts newer than this page */
+	public long getNewerCursor() {
+		return firstCursor + count;
+	}
+
+	private long cursorOf(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+		return newestFirst ? firstCursor + count - 1 - index : firstCursor + index;
+	}
+}
@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * FeedTrimmer enforces a RetentionPolicy on every User's news feed on a schedule, so memory stays flat
+ * under continuous posting. Each pass removes the oldest posts beyond the per-feed limit, posts older than the
+ * maximum age, and then whole feeds, least recently read first, until the memory budget is met.
+ * Removed posts are released from the message store, which is compacted once enough of it has been freed, and the
+ * PostIndex is pruned once freed posts make up most of it.
+ * Scheduled passes remove posts on the Swing event thread, the same thread the User Views and analysis read feeds
+ * from, so a reader never sees a feed change under it; only pruning and compaction run on the trimmer's own thread.
+ */
+public class FeedTrimmer
+{
+	private final RetentionPolicy policy;
+	private final FeedArchive archive;
+	private ScheduledExecutorService scheduler;
+
+	public FeedTrimmer(RetentionPolicy policy) {
+		this.policy = policy;
+		this.archive = policy.getArchiveDirectory() == null ? null : new FeedArchive(policy.getArchiveDirectory());
+	}
+
+	/** Starts running a trimming pass every periodMillis on a background thread */
+	public synchronized void start(long periodMillis) {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "feed-trimmer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::runScheduledPass, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/** Stops the background thread */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+
+	/** Runs a single trimming pass over all Users' news feeds. Call it from the thread that reads the feeds */
+	public void trim() {
+		trimFeeds();
+		PostIndex.getInstance().pruneIfStale(User.getMessageStore());
+		compactIfFragmented();
+	}
+
+	/**
+	 * Private helper for the scheduled passes. Any exception is caught and reported here, since one escaping would
+	 * cancel every later pass.
+	 */
+	private void runScheduledPass() {
+		try {
+			SwingUtilities.invokeAndWait(this::trimFeeds);
+			PostIndex.getInstance().pruneIfStale(User.getMessageStore());
+			compactIfFragmented();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (Throwable e) {
+			System.out.println("Feed trimming pass failed: " + e);
+		}
+	}
+
+	/** Private helper that compacts the message store once freed space is over a quarter of the space in use */
+	private void compactIfFragmented() {
+		MessageStore messageStore = User.getMessageStore();
+		if (messageStore.getFreedBytes() > messageStore.getMemoryUsage() / 4) {
+			messageStore.compact();
+		}
+	}
+
+	/** Private helper that removes posts from the feeds according to the policy */
+	private void trimFeeds() {
+		MessageStore messageStore = User.getMessageStore();
+		List<User> users = User.getCreatedUsersSnapshot();
+
+		for (User user : users) {
+			NewsFeed feed = user.getNewsFeed();
+			int excess = 0;
+			if (policy.getMaxEntriesPerFeed() > 0) {
+				excess = Math.max(0, feed.size() - policy.getMaxEntriesPerFeed());
+			}
+			if (policy.getMaxAgeMillis() > 0) {
+				excess = Math.max(excess, countExpired(feed, messageStore));
+			}
+			if (excess > 0) {
+				evict(user, excess, messageStore);
+			}
+		}
+
+		if (policy.getMemoryBudgetBytes() > 0) {
+			enforceMemoryBudget(users, messageStore);
+		}
+	}
+
+	/** Private helper that counts the posts at the front of the feed older than the maximum age */
+	private int countExpired(NewsFeed feed, MessageStore messageStore) {
+		long cutoff = System.currentTimeMillis() - policy.getMaxAgeMillis();
+		long cursor = feed.getFirstCursor();
+		long end = feed.getCursor();
+		int expired = 0;
+		while (cursor < end && messageStore.getPostTime(feed.getPostIDAt(cursor)) < cutoff) {
+			cursor++;
+			expired++;
+		}
+		return expired;
+	}
+
+	/** Private helper that evicts whole feeds, least recently read first, until the memory budget is met */
+	private void enforceMemoryBudget(List<User> users, MessageStore messageStore) {
+		long indexBytesPerPost = indexBytesPerPost();
+		long memoryUsage = totalMemoryUsage(users, messageStore, indexBytesPerPost);
+		if (memoryUsage <= policy.getMemoryBudgetBytes()) {
+			return;
+		}
+
+		List<User> coldestFirst = new ArrayList<>(users);
+		coldestFirst.sort(Comparator.comparingLong(user -> user.getNewsFeed().getLastAccessTime()));
+		for (User user : coldestFirst) {
+			NewsFeed feed = user.getNewsFeed();
+			if (feed.size() == 0) {
+				continue;
+			}
+			long usageBefore = messageStore.getMemoryUsage() + feed.getMemoryUsage()
+				+ indexBytesPerPost * messageStore.getPostCount();
+			evict(user, feed.size(), messageStore);
+			memoryUsage -= usageBefore - (messageStore.getMemoryUsage() + feed.getMemoryUsage()
+				+ indexBytesPerPost * messageStore.getPostCount());
+			if (memoryUsage <= policy.getMemoryBudgetBytes()) {
+				return;
+			}
+		}
+	}
+
+	/** Private helper that removes the oldest posts from a feed, archiving them first if an archive is set */
+	private void evict(User user, int count, MessageStore messageStore) {
+		NewsFeed feed = user.getNewsFeed();
+		if (archive != null) {
+			List<Post> posts = new ArrayList<>(count);
+			long first = feed.getFirstCursor();
+			for (int i = 0; i < count; i++) {
+				posts.add(feed.getPostAt(first + i));
+			}
+			try {
+				archive.archive(user, posts);
+			}
+			catch (IOException e) {
+				System.out.println("Could not archive news feed of " + user.getName() + ": " + e.getMessage());
+				return;
+			}
+			feed.setArchive(archive, user);
+		}
+
+		for (int postID : feed.removeOldest(count)) {
+			messageStore.release(postID);
+		}
+	}
+
+	/**
+	 * Private helper that returns the average PostIndex memory per indexed post. The index only shrinks when it is
+	 * next pruned, so the budget counts it by the posts still live rather than what it holds right now.
+	 */
+	private long indexBytesPerPost() {
+		PostIndex postIndex = PostIndex.getInstance();
+		int indexedPosts = postIndex.getPostCount();
+		return indexedPosts == 0 ? 0 : postIndex.getMemoryUsage() / indexedPosts;
+	}
+
+	/** Private helper that adds up the memory used by the message store, the index and every feed's post ID array */
+	private long totalMemoryUsage(List<User> users, MessageStore messageStore, long indexBytesPerPost) {
+		long memoryUsage = messageStore.getMemoryUsage() + indexBytesPerPost * messageStore.getPostCount();
+		for (User user : users) {
+			memoryUsage += user.getNewsFeed().getMemoryUsage();
+		}
+		return memoryUsage;
+	}
+}
@@ -0,0 +1,256 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * FollowRecommender suggests Users to follow from the friends-of-friends in the follow graph: every User followed by
+ * someone this User follows is a candidate, ranked by how many of those followed Users lead to it.
+ * Suggestions are cached per User in a least recently used map of bounded size, set by the
+ * "minitwitter.suggestions.cacheSize" system property.
+ * The recommender keeps its own copy of the follow graph as one primitive array of followed User indexes per User,
+ * added to by followEdgeAdded() as followUser() adds edges. A row is replaced rather than changed when it grows, so
+ * background threads can count candidates from a copy of the row table without reading the Users' lists.
+ * A new edge only changes the suggestions of the follower and of the Users following the follower. The follower's
+ * entry is recomputed straight away; the others are marked stale and recomputed on a background thread, and keep
+ * serving their previous suggestions until then.
+ * recomputeAll() is the batch job, counting candidates for every User in parallel across cores. The Admin Panel runs
+ * it on a schedule with start(). Like the Admin Panel, the recommender is a Singleton.
+ */
+public class FollowRecommender
+{
+	public static final int SUGGESTION_COUNT = 5;
+
+	private static FollowRecommender instance;
+	private final Map<Integer, FollowSuggestions> cache;
+	private final ExecutorService refresher;
+	private CandidateCounter counter;
+	private int[][] following;
+	private Set<Integer> staleUsers;
+	private boolean refreshPending;
+	private Set<Integer> changedSinceCopy;
+	private ScheduledExecutorService scheduler;
+
+	/** public getInstance() to reference the same instance of the recommender */
+	public static synchronized FollowRecommender getInstance() {
+		if (instance == null) {
+			instance = new FollowRecommender(Integer.getInteger("minitwitter.suggestions.cacheSize", 10000));
+		}
+		return instance;
+	}
+
+	private FollowRecommender(int maxCachedUsers) {
+		cache = new LinkedHashMap<Integer, FollowSuggestions>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, FollowSuggestions> eldest) {
+				return size() > maxCachedUsers;
+			}
+		};
+		refresher = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "follow-recommender-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		counter = new CandidateCounter(0);
+		following = new int[16][];
+		staleUsers = new HashSet<>();
+	}
+
+	/** Returns the suggestions for the User, computing them if they are not cached */
+	public synchronized FollowSuggestions getSuggestions(User user) {
+		FollowSuggestions suggestions = cache.get(user.getIndex());
+		if (suggestions == null) {
+			suggestions = count(user.getIndex(), following, counter);
+			cache.put(user.getIndex(), suggestions);
+		}
+		return suggestions;
+	}
+
+	/**
+	 * Records that follower started following followed. The follower's cached suggestions are recomputed, and the
+	 * cached suggestions of everyone following the follower, who now reach followed, are refreshed in the background.
+	 */
+	public synchronized void followEdgeAdded(User follower, User followed) {
+		int followerIndex = follower.getIndex();
+		int followedIndex = followed.getIndex();
+		int rowCount = Math.max(followerIndex, followedIndex) + 1;
+		if (rowCount > following.length) {
+			following = Arrays.copyOf(following, Math.max(rowCount, following.length * 2));
+		}
+		int[] row = following[followerIndex];
+		row = row == null ? new int[1] : Arrays.copyOf(row, row.length + 1);
+		row[row.length - 1] = followedIndex;
+		following[followerIndex] = row;
+
+		markChanged(followerIndex);
+		if (cache.containsKey(followerIndex)) {
+			cache.put(followerIndex, count(followerIndex, following, counter));
+		}
+		for (User secondHop : follower.getFollowers()) {
+			markChanged(secondHop.getIndex());
+			if (cache.containsKey(secondHop.getIndex())) {
+				staleUsers.add(secondHop.getIndex());
+			}
+		}
+
+		if (!staleUsers.isEmpty() && !refreshPending) {
+			refreshPending = true;
+			refresher.execute(this::refreshStaleUsers);
+		}
+	}
+
+	/** Starts running recomputeAll() every periodMillis on a background thread */
+	public synchronized void start(long periodMillis) {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "follow-recommender");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::runScheduledRecompute, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/** Stops the background thread */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Batch job that recomputes suggestions for every User in parallel, from a copy of the row table taken when it
+	 * starts. Users whose suggestions change while it runs keep their newer entries.
+	 * When there are more Users than the cache holds, only the last Users' results stay cached.
+	 */
+	public void recomputeAll() {
+		int[][] graph;
+		synchronized (this) {
+			graph = Arrays.copyOf(following, following.length);
+			changedSinceCopy = new HashSet<>();
+		}
+
+		int[] userIndexes = IntStream.range(0, graph.length).toArray();
+		FollowSuggestions[] results = countAll(userIndexes, graph);
+
+		synchronized (this) {
+			for (int userIndex = 0; userIndex < results.length; userIndex++) {
+				if (!changedSinceCopy.contains(userIndex)) {
+					cache.put(userIndex, results[userIndex]);
+				}
+			}
+			changedSinceCopy = null;
+		}
+	}
+
+	/** Returns the number of Users with cached suggestions */
+	public synchronized int getCachedCount() {
+		return cache.size();
+	}
+
+	/** Returns the number of cached Users waiting for a background refresh */
+	public synchronized int getStaleCount() {
+		return staleUsers.size();
+	}
+
+	/**
+	 * Private helper for the scheduled runs. Any exception is caught and reported here, since one escaping would
+	 * cancel every later run.
+	 */
+	private void runScheduledRecompute() {
+		try {
+			recomputeAll();
+		}
+		catch (Throwable e) {
+			System.out.println("Follow suggestion recompute failed: " + e);
+		}
+	}
+
+	/**
+	 * Private helper, run on the refresh thread, that recomputes the stale cached entries from a copy of the row
+	 * table. Edges added while it counts mark their Users stale again, and another refresh picks them up.
+	 */
+	private void refreshStaleUsers() {
+		try {
+			int[] userIndexes;
+			int[][] graph;
+			synchronized (this) {
+				userIndexes = staleUsers.stream().mapToInt(Integer::intValue).toArray();
+				staleUsers = new HashSet<>();
+				graph = Arrays.copyOf(following, following.length);
+			}
+
+			FollowSuggestions[] results = countAll(userIndexes, graph);
+
+			synchronized (this) {
+				for (int i = 0; i < userIndexes.length; i++) {
+					if (cache.containsKey(userIndexes[i])) {
+						cache.put(userIndexes[i], results[i]);
+					}
+				}
+			}
+		}
+		catch (Throwable e) {
+			System.out.println("Follow suggestion refresh failed: " + e);
+		}
+		finally {
+			synchronized (this) {
+				refreshPending = !staleUsers.isEmpty();
+				if (refreshPending) {
+					refresher.execute(this::refreshStaleUsers);
+				}
+			}
+		}
+	}
+
+	/** Private helper that remembers a changed User while recomputeAll() is counting */
+	private void markChanged(int userIndex) {
+		if (changedSinceCopy != null) {
+			changedSinceCopy.add(userIndex);
+		}
+	}
+
+	/**
+	 * Private helper that counts the candidates for many Users in parallel. The Users are split into a few ranges per
+	 * core, and each range allocates one counter that is dropped when the range is done.
+	 */
+	private static FollowSuggestions[] countAll(int[] userIndexes, int[][] graph) {
+		FollowSuggestions[] results = new FollowSuggestions[userIndexes.length];
+		int rangeCount = Math.min(userIndexes.length, Runtime.getRuntime().availableProcessors() * 4);
+		IntStream.range(0, rangeCount).parallel().forEach(range -> {
+			CandidateCounter rangeCounter = new CandidateCounter(graph.length);
+			int from = (int) ((long) userIndexes.length * range / rangeCount);
+			int to = (int) ((long) userIndexes.length * (range + 1) / rangeCount);
+			for (int i = from; i < to; i++) {
+				results[i] = count(userIndexes[i], graph, rangeCounter);
+			}
+		});
+		return results;
+	}
+
+	/** Private helper that counts the candidates for one User from a copy of the row table */
+	private static FollowSuggestions count(int userIndex, int[][] graph, CandidateCounter counter) {
+		int[] followedIndexes = userIndex < graph.length && graph[userIndex] != null ? graph[userIndex] : new int[0];
+		counter.exclude(userIndex);
+		for (int followed : followedIndexes) {
+			counter.exclude(followed);
+		}
+		for (int followed : followedIndexes) {
+			if (followed >= graph.length || graph[followed] == null) {
+				continue;
+			}
+			for (int candidate : graph[followed]) {
+				counter.increment(candidate);
+			}
+		}
+		return counter.takeTop(SUGGESTION_COUNT);
+	}
+}
@@ -0,0 +1,29 @@
+/**
+ * FollowSuggestions is the cached result of the FollowRecommender for one User: the Users they might want to follow,
+ * best first, along with how many of the Users they already follow also follow each suggestion.
+ */
+public class FollowSuggestions
+{
+	private final int[] userIndexes;
+	private final int[] mutualCounts;
+
+	public FollowSuggestions(int[] userIndexes, int[] mutualCounts) {
+		this.userIndexes = userIndexes;
+		this.mutualCounts = mutualCounts;
+	}
+
+	/** Returns the number of suggestions */
+	public int size() {
+		return userIndexes.length;
+	}
+
+	/** Returns the suggested User at the given position */
+	public User getUser(int position) {
+		return User.getUserByIndex(userIndexes[position]);
+	}
+
+	/** Returns how many followed Users also follow the suggested User at the given position */
+	public int getMutualCount(int position) {
+		return mutualCounts[position];
+	}
+}
@@ -0,0 +1,220 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * GroupMembershipIndex answers membership questions about the composite tree of UserGroups without walking it.
+ * Every group and grouped User gets a parent pointer, a depth and an interval of labels from an Euler tour of the
+ * tree, kept in its TreePosition and updated as addUser() and addGroup() run. A node is inside a group exactly when
+ * its interval lies inside the group's, so ancestry, depth and subtree membership checks take constant time.
+ * Users are also kept in a map sorted by label, so the Users of a subtree are one contiguous range of it.
+ * New members take labels from the free space left in their parent's interval; when a parent runs out, the whole
+ * tree is renumbered with fresh gaps. The gaps are sized from the number of nodes, so the label space is spread
+ * over the tree instead of a fixed gap being used up after a few dozen groups, and a new group takes at most a
+ * bounded span of its parent's free space rather than half of it. Like the Admin Panel, the index is a Singleton.
+ */
+public class GroupMembershipIndex
+{
+	/** Labels available to the whole forest */
+	private static final long LABEL_SPACE = Long.MAX_VALUE / 2;
+	/** Smallest space left after each node when the tree is renumbered */
+	private static final long MIN_LABEL_GAP = 1L << 8;
+	/** Number of new groups that fit in the gap after a node before the tree needs renumbering */
+	private static final long GROUPS_PER_GAP = 1L << 10;
+
+	private static GroupMembershipIndex instance;
+	private final TreePosition forestPosition;
+	private final List<UserGroup> topLevelGroups;
+	private final TreeMap<Long, User> usersByLabel;
+	private long labelGap;
+	private int nodeCount;
+
+	/** public getInstance() to reference the same instance of the index */
+	public static synchronized GroupMembershipIndex getInstance() {
+		if (instance == null) {
+			instance = new GroupMembershipIndex();
+		}
+		return instance;
+	}
+
+	private GroupMembershipIndex() {
+		forestPosition = new TreePosition();
+		forestPosition.setLabels(0, LABEL_SPACE);
+		topLevelGroups = new ArrayList<>();
+		usersByLabel = new TreeMap<>();
+		labelGap = gapFor(0);
+	}
+
+	/** Numbers a newly created group, which starts out as a top-level group of its own */
+	public synchronized void addTopLevelGroup(UserGroup group) {
+		topLevelGroups.add(group);
+		nodeCount++;
+		group.getTreePosition().setDepth(0);
+		if (!allocate(forestPosition, group.getTreePosition(), true)) {
+			renumber();
+		}
+	}
+
+	/**
+	 * Throws if the member cannot be added to the group: a User may only belong to one group, only a top-level group
+	 * can be moved under another, and a group cannot be added inside itself.
+	 */
+	public synchronized void checkCanAdd(UserGroup group, UserInterface member) {
+		if (member instanceof User && member.getTreePosition().getParentGroup() != null) {
+			throw new IllegalArgumentException(member.getName() + " already belongs to group "
+				+ member.getTreePosition().getParentGroup().getName());
+		}
+		if (member instanceof UserGroup) {
+			if (member.getTreePosition().getParentGroup() != null) {
+				throw new IllegalArgumentException("Group " + member.getName() + " is already inside group "
+					+ member.getTreePosition().getParentGroup().getName());
+			}
+			if (member.getTreePosition().contains(group.getTreePosition())) {
+				throw new IllegalArgumentException("Group " + member.getName() + " cannot be added inside itself");
+			}
+		}
+	}
+
+	/** Numbers a member that has just been added to the end of the group's list */
+	public synchronized void memberAdded(UserGroup group, UserInterface member) {
+		if (member instanceof User) {
+			nodeCount++;
+		}
+		TreePosition position = member.getTreePosition();
+		TreePosition parentPosition = group.getTreePosition();
+		position.setParentGroup(group);
+		position.setDepth(parentPosition.getDepth() + 1);
+
+		if (member instanceof UserGroup) {
+			topLevelGroups.remove(member);
+			if (!((UserGroup) member).getUserList().isEmpty()) {
+				// a group that already has members moves with its whole subtree, so renumber everything
+				renumber();
+				return;
+			}
+		}
+
+		if (!allocate(parentPosition, position, member instanceof UserGroup)) {
+			renumber();
+			return;
+		}
+		if (member instanceof User) {
+			usersByLabel.put(position.getEnterLabel(), (User) member);
+		}
+	}
+
+	/** Returns true if the node is anywhere under the group */
+	public synchronized boolean isMember(UserInterface node, UserGroup group) {
+		return node != group && group.getTreePosition().contains(node.getTreePosition());
+	}
+
+	/** Returns the number of groups above the node */
+	public synchronized int getDepth(UserInterface node) {
+		return node.getTreePosition().getDepth();
+	}
+
+	/**
+	 * Returns every User anywhere under the group, in tree order, as a read-only copy of one contiguous range, so it
+	 * stays valid after later changes to the tree
+	 */
+	public synchronized List<User> getUsers(UserGroup group) {
+		TreePosition position = group.getTreePosition();
+		return Collections.unmodifiableList(new ArrayList<>(
+			usersByLabel.subMap(position.getEnterLabel(), true, position.getExitLabel(), true).values()));
+	}
+
+	/** Returns the groups containing the node, from its parent group up to its top-level group */
+	public synchronized List<UserGroup> getGroups(UserInterface node) {
+		List<UserGroup> groups = new ArrayList<>(node.getTreePosition().getDepth());
+		for (UserGroup group = node.getTreePosition().getParentGroup(); group != null;
+				group = group.getTreePosition().getParentGroup()) {
+			groups.add(group);
+		}
+		return groups;
+	}
+
+	/**
+	 * Private helper that takes labels for a new last child from the free space in the parent's interval.
+	 * A User needs a single label, while a group takes up to a GROUPS_PER_GAP share of the renumbering gap, and never
+	 * more than half of the free space, so it can hold members of its own. Returns false if there is not enough space
+	 * left.
+	 */
+	private boolean allocate(TreePosition parentPosition, TreePosition position, boolean group) {
+		long next = parentPosition.getNextChildLabel();
+		long free = parentPosition.getExitLabel() - next;
+		if (group) {
+			if (free < 4) {
+				return false;
+			}
+			position.setLabels(next, next + Math.min(free / 2, Math.max(4, labelGap / GROUPS_PER_GAP)));
+		}
+		else {
+			if (free < 1) {
+				return false;
+			}
+			position.setLabels(next, next);
+		}
+		parentPosition.setNextChildLabel(position.getExitLabel() + 1);
+		return true;
+	}
+
+	/** Private helper that renumbers the whole tree with an iterative Euler tour, leaving a gap after every node */
+	private void renumber() {
+		usersByLabel.clear();
+		labelGap = gapFor(nodeCount);
+		long label = forestPosition.getEnterLabel() + labelGap;
+
+		// each stack entry is a group and the index of its next member to visit
+		Deque<UserGroup> groups = new ArrayDeque<>();
+		Deque<Integer> nextMembers = new ArrayDeque<>();
+		for (UserGroup topLevelGroup : topLevelGroups) {
+			topLevelGroup.getTreePosition().setDepth(0);
+			topLevelGroup.getTreePosition().setLabels(label, label);
+			label += labelGap;
+			groups.push(topLevelGroup);
+			nextMembers.push(0);
+
+			while (!groups.isEmpty()) {
+				UserGroup group = groups.peek();
+				int memberIndex = nextMembers.pop();
+				TreePosition groupPosition = group.getTreePosition();
+
+				if (memberIndex == group.getUserList().size()) {
+					groups.pop();
+					groupPosition.setLabels(groupPosition.getEnterLabel(), label);
+					groupPosition.setNextChildLabel(label - labelGap + 1);
+					label += labelGap;
+					continue;
+				}
+				nextMembers.push(memberIndex + 1);
+
+				UserInterface member = group.getUserList().get(memberIndex);
+				TreePosition position = member.getTreePosition();
+				position.setParentGroup(group);
+				position.setDepth(groupPosition.getDepth() + 1);
+				position.setLabels(label, label);
+				label += labelGap;
+				if (member instanceof UserGroup) {
+					groups.push((UserGroup) member);
+					nextMembers.push(0);
+				}
+				else {
+					usersByLabel.put(position.getEnterLabel(), (User) member);
+				}
+			}
+		}
+		forestPosition.setNextChildLabel(label);
+	}
+
+	/**
+	 * Private helper that returns the gap to leave after each node when renumbering a tree of the given size. Every
+	 * group uses two labels, so the renumbered tree fills at most half of the label space and the rest stays free for
+	 * new top-level groups.
+	 */
+	private static long gapFor(int nodeCount) {
+		return Math.max(MIN_LABEL_GAP, Long.highestOneBit(LABEL_SPACE / (4L * (nodeCount + 1))));
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * HeapMessageStore keeps every Post as an object on the Java heap, indexed by its post ID.
+ * This is the default mode, and suits small deployments where the whole message history fits comfortably in the heap.
+ */
+public class HeapMessageStore implements MessageStore
+{
+	/** Estimated heap bytes for a Post object and its body array header */
+	private static final int POST_OVERHEAD = 40;
+
+	private PostSlotTable posts;
+	private long postBytes;
+
+	public HeapMessageStore() {
+		posts = new PostSlotTable(true);
+	}
+
+	@Override
+	public synchronized int store(User author, String message, int references) {
+		return restore(new Post(author, message, System.currentTimeMillis()), references);
+	}
+
+	@Override
+	public synchronized int restore(Post post, int references) {
+		int postID = posts.add(references);
+		if (posts.contains(postID)) {
+			posts.setObject(postID, post);
+			postBytes += POST_OVERHEAD + post.getMessageLength();
+		}
+		return postID;
+	}
+
+	@Override
+	public synchronized void retain(int postID) {
+		posts.retain(postID);
+	}
+
+	@Override
+	public synchronized void release(int postID) {
+		Post post = (Post) posts.getObject(postID);
+		if (posts.release(postID)) {
+			postBytes -= POST_OVERHEAD + post.getMessageLength();
+		}
+	}
+
+	@Override
+	public synchronized boolean contains(int postID) {
+		return posts.contains(postID);
+	}
+
+	@Override
+	public synchronized Post getPost(int postID) {
+		return (Post) posts.getObject(postID);
+	}
+
+	@Override
+	public synchronized Post getPostIfPresent(int postID) {
+		return posts.contains(postID) ? (Post) posts.getObject(postID) : null;
+	}
+
+	@Override
+	public synchronized long getPostTime(int postID) {
+		return getPost(postID).getPostTime();
+	}
+
+	@Override
+	public synchronized int getPostCount() {
+		return posts.size();
+	}
+
+	@Override
+	public synchronized long getMemoryUsage() {
+		return postBytes + posts.getMemoryUsage();
+	}
+
+	/** Freed posts are left to the garbage collector as soon as they are released */
+	@Override
+	public long getFreedBytes() {
+		return 0;
+	}
+
+	/** Freed posts are already left to the garbage collector, so there is nothing to move */
+	@Override
+	public void compact() {
+	}
+
+	@Override
+	public synchronized void close() {
+		posts.clear();
+		postBytes = 0;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Interface for the storage that holds the body of every Post. News feeds only keep the int post ID handed out by
+ * store(), and look the Post back up when it is displayed or analyzed.
+ * Each stored Post carries a reference count, one per news feed holding it; once release() drops the count to zero
+ * the Post is gone and its space can be reclaimed by compact().
+ * Two modes are available: the on-heap store, which keeps Post objects in a list, and the off-heap store, which keeps
+ * message bodies in direct buffers outside the garbage collected heap. The mode is chosen with the
+ * "minitwitter.messageStore" system property ("heap" or "offheap").
+ */
+public interface MessageStore {
+
+	/** System property used to pick the message store mode */
+	public static final String MODE_PROPERTY = "minitwitter.messageStore";
+
+	/** Stores a message posted by the author at the current time, referenced by the given number of news feeds,
+	 * and returns its post ID
+	 */
+	public int store(User author, String message, int references);
+
+	/** Stores a Post read back from an archive, keeping its author and post time, and returns its new post ID */
+	public int restore(Post post, int references);
+
+	/** Adds one news feed reference to the post */
+	public void retain(int postID);
+
+	/** Removes one news feed reference from the post, freeing it once no news feed references it */
+	public void release(int postID);
+
+	/** Returns true if the post has not been freed */
+	public boolean contains(int postID);
+
+	/** Returns the Post for the given post ID */
+	public Post getPost(int postID);
+
+	/** Returns the Post for the given post ID, or null if it has been freed, checking and reading in one step */
+	public Post getPostIfPresent(int postID);
+
+	/** Returns the time the post was published, without rebuilding the Post */
+	public long getPostTime(int postID);
+
+	/** Returns the number of posts that are still referenced */
+	public int getPostCount();
+
+	/** Returns the estimated number of bytes held by posts that are still referenced, including the post ID tables */
+	public long getMemoryUsage();
+
+	/** Returns the number of bytes held by freed posts that compact() would reclaim */
+	public long getFreedBytes();
+
+	/** Reclaims the space of freed posts. Post IDs stay valid across compaction */
+	public void compact();
+
+	/** Frees all stored posts, after which the store should no longer be used */
+	public void close();
+
+	/** Creates the message store selected by the mode system property, defaulting to the on-heap store */
+	public static MessageStore create() {
+		if ("offheap".equalsIgnoreCase(System.getProperty(MODE_PROPERTY, "heap"))) {
+			return new OffHeapMessageStore();
+		}
+		return new HeapMessageStore();
+	}
+}
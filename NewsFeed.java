@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * NewsFeed holds the posts delivered to a single User as a primitive array of post IDs, in the order they arrived.
+ * The posts themselves live in the shared MessageStore, and are only looked up when an entry is read.
+ * NewsFeed is a read-only List of Posts, so it can be iterated like the news feed list it replaces, but readers that
+ * only display part of the feed should use getNewest(), getPage() and getSince(), which return FeedPage views
+ * without copying. Each position in the feed is identified by a cursor, counting from the first post delivered,
+ * so cursors stay valid when the FeedTrimmer removes old posts from the front of the feed.
+ * The FeedTrimmer only removes posts on the UI thread that reads feeds, so iterating the feed or a FeedPage is safe
+ * within one UI event. Methods are synchronized so posts can still be appended from other threads.
+ * If the FeedTrimmer archived the posts it removed, getPage() and getSince() read them back from the FeedArchive
+ * when asked for cursors before the oldest post left, so an evicted feed fills again when its User opens it.
+ */
+public class NewsFeed extends AbstractList<Post>
+{
+	private final MessageStore messageStore;
+	private int[] postIDs;
+	private int size;
+	private long firstCursor;
+	private long lastAccessTime;
+	private FeedArchive archive;
+	private User archiveOwner;
+
+	public NewsFeed(MessageStore messageStore) {
+		this.messageStore = messageStore;
+		postIDs = new int[8];
+		lastAccessTime = System.currentTimeMillis();
+	}
+
+	/** Adds a post ID to the end of the feed. The caller is responsible for the post's reference in the store */
+	public synchronized void append(int postID) {
+		if (size == postIDs.length) {
+			postIDs = Arrays.copyOf(postIDs, size * 2);
+		}
+		postIDs[size++] = postID;
+	}
+
+	/** Adds a batch of post IDs to the end of the feed, growing the array at most once */
+	public synchronized void appendAll(int[] batchPostIDs, int count) {
+		if (size + count > postIDs.length) {
+			postIDs = Arrays.copyOf(postIDs, Math.max(size + count, size * 2));
+		}
+		System.arraycopy(batchPostIDs, 0, postIDs, size, count);
+		size += count;
+	}
+
+	/** Returns the post ID at the given position of the feed */
+	public synchronized int getPostID(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return postIDs[index];
+	}
+
+	@Override
+	public synchronized Post get(int index) {
+		return messageStore.getPost(getPostID(index));
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	/** Returns the cursor of the oldest post still in the feed */
+	public synchronized long getFirstCursor() {
+		return firstCursor;
+	}
+
+	/** Returns the cursor that the next delivered post will take, used for polling with getSince() */
+	public synchronized long getCursor() {
+		return getFirstCursor() + size;
+	}
+
+	/** Returns the post ID at the given cursor */
+	public synchronized int getPostIDAt(long cursor) {
+		long index = cursor - getFirstCursor();
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Cursor " + cursor + " is not in the feed");
+		}
+		return postIDs[(int) index];
+	}
+
+	/** Returns the Post at the given cursor */
+	public synchronized Post getPostAt(long cursor) {
+		return messageStore.getPost(getPostIDAt(cursor));
+	}
+
+	/** Returns up to limit of the newest posts, newest first */
+	public synchronized FeedPage getNewest(int limit) {
+		return getPage(getCursor(), limit);
+	}
+
+	/** Returns up to limit posts older than the given cursor, newest first.
+	 * Pass the page's getOlderCursor() back in to read the next older page.
+	 */
+	public synchronized FeedPage getPage(long before, int limit) {
+		lastAccessTime = System.currentTimeMillis();
+		restoreArchived(Math.min(before, getCursor()) - Math.max(limit, 0));
+		long end = Math.max(getFirstCursor(), Math.min(before, getCursor()));
+		long start = Math.max(getFirstCursor(), end - Math.max(limit, 0));
+		return new FeedPage(this, start, (int) (end - start), true);
+	}
+
+	/** Returns up to limit posts delivered at or after the given cursor, oldest first.
+	 * Pass the page's getNewerCursor() back in to poll for the posts that arrive next.
+	 */
+	public synchronized FeedPage getSince(long since, int limit) {
+		lastAccessTime = System.currentTimeMillis();
+		restoreArchived(since);
+		long start = Math.min(Math.max(since, getFirstCursor()), getCursor());
+		long end = Math.min(getCursor(), start + Math.max(limit, 0));
+		return new FeedPage(this, start, (int) (end - start), false);
+	}
+
+	/** Removes up to count of the oldest posts from the front of the feed and returns their post IDs.
+	 * The caller is responsible for releasing the posts' references in the store.
+	 */
+	public synchronized int[] removeOldest(int count) {
+		count = Math.min(count, size);
+		int[] removed = Arrays.copyOf(postIDs, count);
+		size -= count;
+		if (size < postIDs.length / 4 && postIDs.length > 8) {
+			postIDs = Arrays.copyOfRange(postIDs, count, count + Math.max(size * 2, 8));
+		}
+		else {
+			System.arraycopy(postIDs, count, postIDs, 0, size);
+		}
+		firstCursor += count;
+		modCount++;
+		return removed;
+	}
+
+	/** Records that the posts before the oldest post in the feed are archived, so they can be restored when read */
+	public synchronized void setArchive(FeedArchive archive, User owner) {
+		this.archive = archive;
+		this.archiveOwner = owner;
+	}
+
+	/** Returns the time the feed was last read a page at a time, used to find cold feeds */
+	public synchronized long getLastAccessTime() {
+		return lastAccessTime;
+	}
+
+	/**
+	 * Private helper that reads archived posts back into the message store and the front of the feed, until the feed
+	 * starts at the given cursor or the archive runs out.
+	 */
+	private void restoreArchived(long fromCursor) {
+		if (archive == null || fromCursor >= firstCursor) {
+			return;
+		}
+
+		List<Post> posts;
+		try {
+			posts = archive.restoreNewest(archiveOwner, (int) Math.min(firstCursor - fromCursor, Integer.MAX_VALUE));
+		}
+		catch (IOException e) {
+			System.out.println("Could not restore news feed of " + archiveOwner.getName() + ": " + e.getMessage());
+			return;
+		}
+		if (posts.size() < firstCursor - fromCursor) {
+			archive = null;
+			archiveOwner = null;
+		}
+		if (posts.isEmpty()) {
+			return;
+		}
+
+		int[] restored = new int[Math.max(size + posts.size(), postIDs.length)];
+		for (int i = 0; i < posts.size(); i++) {
+			restored[i] = messageStore.restore(posts.get(i), 1);
+		}
+		System.arraycopy(postIDs, 0, restored, posts.size(), size);
+		postIDs = restored;
+		size += posts.size();
+		firstCursor -= posts.size();
+		modCount++;
+	}
+
+	/** Returns the estimated number of heap bytes used by the feed's post ID array */
+	public synchronized long getMemoryUsage() {
+		return 4L * postIDs.length;
+	}
+}
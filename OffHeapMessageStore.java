@@ -0,0 +1,210 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OffHeapMessageStore keeps message bodies in direct ByteBuffer segments outside the garbage collected heap,
+ * so years of message history do not add to GC pause times. Each post is written once as a record of
+ * [author index][body length][post time][UTF-8 body], and the heap only holds a PostSlotTable of primitive chunks
+ * mapping post IDs to record locations and reference counts.
+ * Freed records are not reused in place; compact() copies the live records into fresh segments and frees the old
+ * ones, and close() frees every segment. Direct buffers are otherwise only released when the garbage collector
+ * collects them, which on a large, quiet heap can take long enough to run out of direct memory, so segments are
+ * freed explicitly through sun.misc.Unsafe.invokeCleaner(). No segment is used outside the store's lock, so nothing
+ * can read a freed segment. If the cleaner is not available, segments fall back to being released by the garbage
+ * collector, and -XX:MaxDirectMemorySize must leave room for the old segments of one compaction on top of the
+ * live records.
+ */
+public class OffHeapMessageStore implements MessageStore
+{
+	private static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+	private static final int RECORD_HEADER_SIZE = 16;
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			System.out.println("Off-heap segments will be freed by the garbage collector: " + e);
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private final int segmentSize;
+	private List<ByteBuffer> segments;
+	private PostSlotTable locations;
+	private long liveBytes;
+	private long freedBytes;
+
+	public OffHeapMessageStore() {
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	/** Constructor that sets the size in bytes of each direct buffer segment */
+	public OffHeapMessageStore(int segmentSize) {
+		this.segmentSize = segmentSize;
+		segments = new ArrayList<>();
+		locations = new PostSlotTable(false);
+	}
+
+	@Override
+	public synchronized int store(User author, String message, int references) {
+		return store(author.getIndex(), message, System.currentTimeMillis(), references);
+	}
+
+	@Override
+	public synchronized int restore(Post post, int references) {
+		return store(post.getAuthorIndex(), post.getMessage(), post.getPostTime(), references);
+	}
+
+	@Override
+	public synchronized void retain(int postID) {
+		locations.retain(postID);
+	}
+
+	@Override
+	public synchronized void release(int postID) {
+		long recordSize = RECORD_HEADER_SIZE + segmentOf(postID).getInt(offsetOf(postID) + 4);
+		if (locations.release(postID)) {
+			liveBytes -= recordSize;
+			freedBytes += recordSize;
+		}
+	}
+
+	@Override
+	public synchronized boolean contains(int postID) {
+		return locations.contains(postID);
+	}
+
+	@Override
+	public synchronized Post getPost(int postID) {
+		ByteBuffer segment = segmentOf(postID);
+		int offset = offsetOf(postID);
+		byte[] body = new byte[segment.getInt(offset + 4)];
+		segment.get(offset + RECORD_HEADER_SIZE, body);
+		return new Post(segment.getInt(offset), body, segment.getLong(offset + 8));
+	}
+
+	@Override
+	public synchronized Post getPostIfPresent(int postID) {
+		return locations.contains(postID) ? getPost(postID) : null;
+	}
+
+	@Override
+	public synchronized long getPostTime(int postID) {
+		return segmentOf(postID).getLong(offsetOf(postID) + 8);
+	}
+
+	@Override
+	public synchronized int getPostCount() {
+		return locations.size();
+	}
+
+	/** Returns the number of off-heap bytes held by posts that are still referenced */
+	public synchronized long getLiveBytes() {
+		return liveBytes;
+	}
+
+	/** Off-heap records are counted in full, since they still take up the machine's memory */
+	@Override
+	public synchronized long getMemoryUsage() {
+		return liveBytes + locations.getMemoryUsage();
+	}
+
+	/** Returns the number of off-heap bytes held by freed posts, which compact() will reclaim */
+	@Override
+	public synchronized long getFreedBytes() {
+		return freedBytes;
+	}
+
+	@Override
+	public synchronized void compact() {
+		if (freedBytes == 0) {
+			return;
+		}
+
+		List<ByteBuffer> compacted = new ArrayList<>();
+		for (int postID = locations.nextLive(0); postID >= 0; postID = locations.nextLive(postID + 1)) {
+			ByteBuffer segment = segmentOf(postID);
+			int offset = offsetOf(postID);
+			byte[] body = new byte[segment.getInt(offset + 4)];
+			segment.get(offset + RECORD_HEADER_SIZE, body);
+			locations.setLong(postID, append(compacted, segment.getInt(offset), segment.getLong(offset + 8), body));
+		}
+		freeSegments(segments);
+		segments = compacted;
+		freedBytes = 0;
+	}
+
+	@Override
+	public synchronized void close() {
+		freeSegments(segments);
+		segments = new ArrayList<>();
+		locations.clear();
+		liveBytes = 0;
+		freedBytes = 0;
+	}
+
+	/** Private helper that stores a record, unless it has no references */
+	private int store(int authorIndex, String message, long postTime, int references) {
+		byte[] body = message.getBytes(StandardCharsets.UTF_8);
+		int postID = locations.add(references);
+		if (locations.contains(postID)) {
+			locations.setLong(postID, append(segments, authorIndex, postTime, body));
+			liveBytes += RECORD_HEADER_SIZE + body.length;
+		}
+		return postID;
+	}
+
+	/** Private helper that writes a record at the end of the last segment, adding a segment if it does not fit */
+	private long append(List<ByteBuffer> target, int authorIndex, long postTime, byte[] body) {
+		int recordSize = RECORD_HEADER_SIZE + body.length;
+		ByteBuffer segment = target.isEmpty() ? null : target.get(target.size() - 1);
+		if (segment == null || segment.remaining() < recordSize) {
+			segment = ByteBuffer.allocateDirect(Math.max(segmentSize, recordSize));
+			target.add(segment);
+		}
+
+		int offset = segment.position();
+		segment.putInt(authorIndex);
+		segment.putInt(body.length);
+		segment.putLong(postTime);
+		segment.put(body);
+		return ((long) (target.size() - 1) << 32) | offset;
+	}
+
+	/** Private helper that releases the native memory of segments that are no longer used */
+	private static void freeSegments(List<ByteBuffer> oldSegments) {
+		if (INVOKE_CLEANER == null) {
+			return;
+		}
+		for (ByteBuffer segment : oldSegments) {
+			try {
+				INVOKE_CLEANER.invoke(UNSAFE, segment);
+			}
+			catch (ReflectiveOperationException e) {
+				// the segment is left for the garbage collector to release
+			}
+		}
+	}
+
+	private ByteBuffer segmentOf(int postID) {
+		return segments.get((int) (locations.getLong(postID) >>> 32));
+	}
+
+	private int offsetOf(int postID) {
+		return (int) locations.getLong(postID);
+	}
+}
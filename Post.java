@@ -0,0 +1,53 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Post is a single message published by a User. One Post is created per call to post() and the same
+ * instance is shared by every follower's news feed, so a message sent to many followers is only stored once.
+ * The author is referenced by its index rather than by name, and the message body is kept as UTF-8 bytes;
+ * turning a Post into display text is left to the User View.
+ */
+public class Post
+{
+	private final int authorIndex;
+	private final byte[] message;
+	private final long postTime;
+
+	/** Constructor that encodes the message once and records the author's index and the time of posting */
+	public Post(User author, String message, long postTime) {
+		this.authorIndex = author.getIndex();
+		this.message = message.getBytes(StandardCharsets.UTF_8);
+		this.postTime = postTime;
+	}
+
+	/** Constructor used by message stores that rebuild a Post from an already encoded body */
+	public Post(int authorIndex, byte[] message, long postTime) {
+		this.authorIndex = authorIndex;
+		this.message = message;
+		this.postTime = postTime;
+	}
+
+	/** Returns the index of the User who published this post */
+	public int getAuthorIndex() {
+		return authorIndex;
+	}
+
+	/** Returns the User who published this post */
+	public User getAuthor() {
+		return User.getUserByIndex(authorIndex);
+	}
+
+	/** Decodes and returns the message body */
+	public String getMessage() {
+		return new String(message, StandardCharsets.UTF_8);
+	}
+
+	/** Returns the time the post was published, in milliseconds */
+	public long getPostTime() {
+		return postTime;
+	}
+
+	/** Returns the number of bytes used by the encoded message body */
+	public int getMessageLength() {
+		return message.length;
+	}
+}
@@ -0,0 +1,86 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PostBatch collects many posts, from one or many Users, and publishes them together.
+ * Posts are grouped by author and stored once each, then every follower receives all of the batch's posts meant
+ * for them in a single append to their news feed, with one update of their last update time,
+ * instead of a full follower fan-out for every post.
+ */
+public class PostBatch
+{
+	private Map<User, List<String>> postsByAuthor;
+
+	public PostBatch() {
+		postsByAuthor = new LinkedHashMap<>();
+	}
+
+	/** Adds a post to the batch. Posts from the same author keep the order they were added in */
+	public void add(User author, String post) {
+		postsByAuthor.computeIfAbsent(author, key -> new ArrayList<>()).add(post);
+	}
+
+	/** Adds several posts from one author to the batch */
+	public void addAll(User author, List<String> posts) {
+		postsByAuthor.computeIfAbsent(author, key -> new ArrayList<>()).addAll(posts);
+	}
+
+	/** Returns the number of posts waiting in the batch */
+	public int size() {
+		int size = 0;
+		for (List<String> posts : postsByAuthor.values()) {
+			size += posts.size();
+		}
+		return size;
+	}
+
+	/** Stores and indexes every post in the batch and delivers them to the followers' news feeds,
+	 * then empties the batch
+	 */
+	public void publish() {
+		MessageStore messageStore = User.getMessageStore();
+		PostIndex postIndex = PostIndex.getInstance();
+		Map<User, int[]> deliveries = new LinkedHashMap<>();
+		Map<User, Integer> deliveryCounts = new LinkedHashMap<>();
+
+		for (Map.Entry<User, List<String>> entry : postsByAuthor.entrySet()) {
+			User author = entry.getKey();
+			List<String> posts = entry.getValue();
+			List<User> followers = author.getFollowers();
+			if (followers.isEmpty() || posts.isEmpty()) {
+				continue;
+			}
+
+			int[] postIDs = new int[posts.size()];
+			for (int i = 0; i < postIDs.length; i++) {
+				postIDs[i] = messageStore.store(author, posts.get(i), followers.size());
+				postIndex.add(postIDs[i], author, posts.get(i));
+			}
+
+			for (User follower : followers) {
+				int count = deliveryCounts.getOrDefault(follower, 0);
+				int[] pending = deliveries.get(follower);
+				// a follower's first author shares that author's array; it is full, so a second author always copies
+				if (pending == null) {
+					pending = postIDs;
+				}
+				else {
+					if (count + postIDs.length > pending.length) {
+						pending = Arrays.copyOf(pending, Math.max(count + postIDs.length, pending.length * 2));
+					}
+					System.arraycopy(postIDs, 0, pending, count, postIDs.length);
+				}
+				deliveries.put(follower, pending);
+				deliveryCounts.put(follower, count + postIDs.length);
+			}
+		}
+
+		for (Map.Entry<User, int[]> delivery : deliveries.entrySet()) {
+			delivery.getKey().updateNewsFeed(delivery.getValue(), deliveryCounts.get(delivery.getKey()));
+		}
+		postsByAuthor.clear();
+	}
+}
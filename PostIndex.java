@@ -0,0 +1,283 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PostIndex is an inverted index over every post delivered to a news feed, so posts can be searched without scanning
+ * any feed. It is updated incrementally as posts are published, mapping each term to a compressed PostingList of
+ * post IDs and positions, and each author to a PostingList of their posts for author-filtered searches.
+ * Post IDs are handed out in the order posts are published, so results are ranked by recency: a search walks the
+ * lists of every term, and of the author, newest first in lockstep with PostingCursors, skipping whole blocks that
+ * cannot hold a match, and stops once enough matches are found. Terms common enough to appear together in a large
+ * share of all posts can still leave a long walk when few of those posts match, so each search also stops after
+ * decoding its scan budget of blocks, set by the "minitwitter.search.scanBudgetBlocks" system property, and returns
+ * the newest matches found so far in a SearchResult marked incomplete.
+ * Searches run on snapshots of the lists taken under the index lock, so a long search does not hold up publishing.
+ * Posts the FeedTrimmer has freed from every feed are skipped by searches, and pruneIfStale() drops them from the
+ * lists once they make up most of the index. A post by a User with no followers is never stored, since no feed
+ * would hold it, so it is not indexed and cannot be found. Like the Admin Panel, the index is a Singleton, since
+ * all Users share one message store.
+ */
+public class PostIndex
+{
+	/** Pass as the author to search posts from every User */
+	public static final User ANY_AUTHOR = null;
+
+	/** The index is pruned once it holds more than this many times as many posts as the message store */
+	private static final int STALE_FACTOR = 2;
+	private static final int MIN_POSTS_TO_PRUNE = 4096;
+
+	private static PostIndex instance;
+	private Map<String, PostingList> postingLists;
+	private Map<Integer, PostingList> authorLists;
+	private int postCount;
+	private int scanBudgetBlocks;
+
+	/** public getInstance() to reference the same instance of the index */
+	public static synchronized PostIndex getInstance() {
+		if (instance == null) {
+			instance = new PostIndex();
+		}
+		return instance;
+	}
+
+	private PostIndex() {
+		postingLists = new HashMap<>();
+		authorLists = new HashMap<>();
+		scanBudgetBlocks = Integer.getInteger("minitwitter.search.scanBudgetBlocks", 1024);
+	}
+
+	/** Indexes a post that has just been stored with the given post ID */
+	public synchronized void add(int postID, User author, String post) {
+		authorLists.computeIfAbsent(author.getIndex(), key -> new PostingList()).add(postID, new int[0], 0);
+		postCount++;
+
+		List<String> terms = tokenize(post);
+		Map<String, List<Integer>> positionsByTerm = new HashMap<>();
+		for (int position = 0; position < terms.size(); position++) {
+			positionsByTerm.computeIfAbsent(terms.get(position), key -> new ArrayList<>()).add(position);
+		}
+
+		for (Map.Entry<String, List<Integer>> entry : positionsByTerm.entrySet()) {
+			List<Integer> termPositions = entry.getValue();
+			int[] positions = new int[termPositions.size()];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = termPositions.get(i);
+			}
+			postingLists.computeIfAbsent(entry.getKey(), key -> new PostingList()).add(postID, positions, positions.length);
+		}
+	}
+
+	/** Returns up to limit of the newest posts containing every term of the query, in any order.
+	 * Pass an author to only search that User's posts, or ANY_AUTHOR to search everyone's.
+	 */
+	public SearchResult search(String query, User author, int limit) {
+		return search(tokenize(query), false, author, limit);
+	}
+
+	/** Returns up to limit of the newest posts containing the words of the phrase next to each other */
+	public SearchResult searchPhrase(String phrase, User author, int limit) {
+		return search(tokenize(phrase), true, author, limit);
+	}
+
+	/** Sets the number of posting list blocks a search may decode before it returns what it has found */
+	public synchronized void setScanBudgetBlocks(int scanBudgetBlocks) {
+		this.scanBudgetBlocks = scanBudgetBlocks;
+	}
+
+	/** Returns the Posts for a search result, skipping posts that have been freed since the search */
+	public List<Post> getPosts(SearchResult result) {
+		MessageStore messageStore = User.getMessageStore();
+		List<Post> posts = new ArrayList<>(result.size());
+		for (int postID : result.getPostIDs()) {
+			Post post = messageStore.getPostIfPresent(postID);
+			if (post != null) {
+				posts.add(post);
+			}
+		}
+		return posts;
+	}
+
+	/** Returns the number of posts indexed, including freed posts that have not been pruned yet */
+	public synchronized int getPostCount() {
+		return postCount;
+	}
+
+	/** Returns the number of distinct terms indexed */
+	public synchronized int getTermCount() {
+		return postingLists.size();
+	}
+
+	/** Returns the estimated number of heap bytes used by the posting lists */
+	public synchronized long getMemoryUsage() {
+		long memoryUsage = 0;
+		for (Map.Entry<String, PostingList> entry : postingLists.entrySet()) {
+			memoryUsage += 64L + 2L * entry.getKey().length() + entry.getValue().getMemoryUsage();
+		}
+		for (PostingList list : authorLists.values()) {
+			memoryUsage += 48L + list.getMemoryUsage();
+		}
+		return memoryUsage;
+	}
+
+	/** Prunes the index if freed posts have come to outnumber the live posts in the message store */
+	public void pruneIfStale(MessageStore messageStore) {
+		int indexedPosts = getPostCount();
+		if (indexedPosts >= MIN_POSTS_TO_PRUNE && indexedPosts > STALE_FACTOR * messageStore.getPostCount()) {
+			prune(messageStore);
+		}
+	}
+
+	/**
+	 * Rebuilds every posting list without the posts freed from the message store. Each list is rebuilt under the
+	 * index lock on its own, so posts can keep being published and searched while the index is pruned.
+	 */
+	public void prune(MessageStore messageStore) {
+		List<String> terms;
+		List<Integer> authors;
+		synchronized (this) {
+			terms = new ArrayList<>(postingLists.keySet());
+			authors = new ArrayList<>(authorLists.keySet());
+		}
+		for (String term : terms) {
+			synchronized (this) {
+				pruneList(postingLists, term, messageStore);
+			}
+		}
+		for (Integer author : authors) {
+			synchronized (this) {
+				pruneList(authorLists, author, messageStore);
+			}
+		}
+
+		// every post is in exactly one author list, so they count the posts left
+		synchronized (this) {
+			postCount = 0;
+			for (PostingList list : authorLists.values()) {
+				postCount += list.size();
+			}
+		}
+	}
+
+	/** Splits text into lower case terms made of letters and digits */
+	public static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean termCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (termCharacter && start < 0) {
+				start = i;
+			}
+			else if (!termCharacter && start >= 0) {
+				terms.add(text.substring(start, i).toLowerCase());
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Private helper that runs a search. The posting lists are snapshotted under the index lock and then walked newest
+	 * first in lockstep without it: every cursor advances to the oldest post any of them is on, which skips the blocks
+	 * the rarer lists rule out, until all of them agree on a post. That post is checked against the phrase offsets
+	 * and skipped if it has been freed. The walk stops early once the cursors have decoded the scan budget.
+	 */
+	private SearchResult search(List<String> terms, boolean phrase, User author, int limit) {
+		if (terms.isEmpty() || limit <= 0) {
+			return new SearchResult(new int[0], true);
+		}
+
+		PostingCursor[] termCursors = new PostingCursor[terms.size()];
+		PostingCursor[] cursors = new PostingCursor[terms.size() + (author == ANY_AUTHOR ? 0 : 1)];
+		int scanBudget;
+		synchronized (this) {
+			for (int i = 0; i < terms.size(); i++) {
+				PostingList list = postingLists.get(terms.get(i));
+				if (list == null) {
+					return new SearchResult(new int[0], true);
+				}
+				termCursors[i] = new PostingCursor(list.snapshot());
+				cursors[i] = termCursors[i];
+			}
+			if (author != ANY_AUTHOR) {
+				PostingList list = authorLists.get(author.getIndex());
+				if (list == null) {
+					return new SearchResult(new int[0], true);
+				}
+				cursors[terms.size()] = new PostingCursor(list.snapshot());
+			}
+			scanBudget = scanBudgetBlocks;
+		}
+
+		MessageStore messageStore = User.getMessageStore();
+		int[] results = new int[Math.min(limit, 64)];
+		int resultCount = 0;
+		while (resultCount < limit) {
+			int candidate = Integer.MAX_VALUE;
+			int decodedBlocks = 0;
+			for (PostingCursor cursor : cursors) {
+				if (cursor.isExhausted()) {
+					return new SearchResult(Arrays.copyOf(results, resultCount), true);
+				}
+				candidate = Math.min(candidate, cursor.getPostID());
+				decodedBlocks += cursor.getDecodedBlockCount();
+			}
+			if (decodedBlocks > scanBudget) {
+				return new SearchResult(Arrays.copyOf(results, resultCount), false);
+			}
+
+			boolean agreed = true;
+			for (PostingCursor cursor : cursors) {
+				cursor.advanceTo(candidate);
+				if (cursor.isExhausted()) {
+					return new SearchResult(Arrays.copyOf(results, resultCount), true);
+				}
+				agreed &= cursor.getPostID() == candidate;
+			}
+			if (!agreed) {
+				continue;
+			}
+
+			if ((!phrase || matchesPhrase(termCursors)) && messageStore.contains(candidate)) {
+				if (resultCount == results.length) {
+					results = Arrays.copyOf(results, Math.min(limit, results.length * 2));
+				}
+				results[resultCount++] = candidate;
+			}
+			cursors[0].previous();
+		}
+		return new SearchResult(Arrays.copyOf(results, resultCount), true);
+	}
+
+	/** Private helper that checks the terms appear in order in the post every cursor is on */
+	private boolean matchesPhrase(PostingCursor[] cursors) {
+		for (int p = 0; p < cursors[0].getPositionCount(); p++) {
+			int start = cursors[0].getPosition(p);
+			boolean matched = true;
+			for (int i = 1; i < cursors.length && matched; i++) {
+				matched = cursors[i].hasPosition(start + i);
+			}
+			if (matched) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Private helper that replaces a posting list with one holding only live posts, or drops it if none are left */
+	private <K> void pruneList(Map<K, PostingList> lists, K key, MessageStore messageStore) {
+		PostingList list = lists.get(key);
+		if (list == null) {
+			return;
+		}
+		PostingList pruned = list.withoutFreedPosts(messageStore);
+		if (pruned.size() == 0) {
+			lists.remove(key);
+		}
+		else if (pruned.size() < list.size()) {
+			lists.put(key, pruned);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+import java.util.Arrays;
+
+/**
+ * PostSlotTable maps post IDs to the per-post data a MessageStore keeps: a reference count, plus either a long
+ * (such as an off-heap location) or an object. Post IDs are handed out in increasing order and never reused, so
+ * the PostIndex can rank by them, but the table is split into chunks of CHUNK_SIZE posts and a chunk is dropped as
+ * soon as every post in it has been freed. Memory therefore follows the number of live posts rather than the number
+ * of posts ever made. A post stored with no references counts as freed straight away.
+ * The table is not synchronized; the message store that owns it guards it with its own lock.
+ */
+public class PostSlotTable
+{
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int SLOT_MASK = CHUNK_SIZE - 1;
+
+	private final boolean holdsObjects;
+	private int[][] referenceCounts;
+	private long[][] longValues;
+	private Object[][] objectValues;
+	private int[] liveCounts;
+	private int firstChunk;
+	private int nextPostID;
+	private int postCount;
+
+	/** Constructor for a table holding a long per post, or an object per post if holdsObjects is true */
+	public PostSlotTable(boolean holdsObjects) {
+		this.holdsObjects = holdsObjects;
+		clear();
+	}
+
+	/** Takes the next post ID and gives it the number of references */
+	public int add(int references) {
+		int postID = nextPostID++;
+		int chunk = chunkOf(postID);
+		if (chunk == referenceCounts.length) {
+			int newLength = Math.max(4, chunk * 2);
+			referenceCounts = Arrays.copyOf(referenceCounts, newLength);
+			longValues = Arrays.copyOf(longValues, newLength);
+			objectValues = Arrays.copyOf(objectValues, newLength);
+			liveCounts = Arrays.copyOf(liveCounts, newLength);
+		}
+		if (referenceCounts[chunk] == null) {
+			referenceCounts[chunk] = new int[CHUNK_SIZE];
+			if (holdsObjects) {
+				objectValues[chunk] = new Object[CHUNK_SIZE];
+			}
+			else {
+				longValues[chunk] = new long[CHUNK_SIZE];
+			}
+		}
+
+		if (references > 0) {
+			referenceCounts[chunk][postID & SLOT_MASK] = references;
+			liveCounts[chunk]++;
+			postCount++;
+		}
+		else {
+			dropChunkIfFreed(chunk);
+		}
+		return postID;
+	}
+
+	/** Adds one reference to a live post */
+	public void retain(int postID) {
+		checkPost(postID);
+		referenceCounts[chunkOf(postID)][postID & SLOT_MASK]++;
+	}
+
+	/** Removes one reference from a live post, and returns true if that freed it */
+	public boolean release(int postID) {
+		checkPost(postID);
+		int chunk = chunkOf(postID);
+		int slot = postID & SLOT_MASK;
+		if (--referenceCounts[chunk][slot] > 0) {
+			return false;
+		}
+
+		if (holdsObjects) {
+			objectValues[chunk][slot] = null;
+		}
+		liveCounts[chunk]--;
+		postCount--;
+		dropChunkIfFreed(chunk);
+		return true;
+	}
+
+	/** Returns true if the post has not been freed */
+	public boolean contains(int postID) {
+		if (postID < 0 || postID >= nextPostID) {
+			return false;
+		}
+		int chunk = chunkOf(postID);
+		return chunk >= 0 && referenceCounts[chunk] != null && referenceCounts[chunk][postID & SLOT_MASK] > 0;
+	}
+
+	/** Returns the first live post ID at or after fromID, or -1 if there is none */
+	public int nextLive(int fromID) {
+		for (int postID = Math.max(fromID, firstChunk << CHUNK_BITS); postID < nextPostID; postID++) {
+			int chunk = chunkOf(postID);
+			if (referenceCounts[chunk] == null) {
+				postID |= SLOT_MASK;
+			}
+			else if (referenceCounts[chunk][postID & SLOT_MASK] > 0) {
+				return postID;
+			}
+		}
+		return -1;
+	}
+
+	public long getLong(int postID) {
+		checkPost(postID);
+		return longValues[chunkOf(postID)][postID & SLOT_MASK];
+	}
+
+	public void setLong(int postID, long value) {
+		checkPost(postID);
+		longValues[chunkOf(postID)][postID & SLOT_MASK] = value;
+	}
+
+	public Object getObject(int postID) {
+		checkPost(postID);
+		return objectValues[chunkOf(postID)][postID & SLOT_MASK];
+	}
+
+	public void setObject(int postID, Object value) {
+		checkPost(postID);
+		objectValues[chunkOf(postID)][postID & SLOT_MASK] = value;
+	}
+
+	/** Returns the number of live posts */
+	public int size() {
+		return postCount;
+	}
+
+	/** Frees every post. Post IDs keep counting up from where they were */
+	public void clear() {
+		referenceCounts = new int[4][];
+		longValues = new long[4][];
+		objectValues = new Object[4][];
+		liveCounts = new int[4];
+		firstChunk = nextPostID >>> CHUNK_BITS;
+		postCount = 0;
+	}
+
+	/** Returns the estimated number of heap bytes used by the table */
+	public long getMemoryUsage() {
+		long memoryUsage = 28L * referenceCounts.length;
+		for (int[] chunk : referenceCounts) {
+			if (chunk != null) {
+				memoryUsage += (4L + (holdsObjects ? 4 : 8)) * CHUNK_SIZE;
+			}
+		}
+		return memoryUsage;
+	}
+
+	/** Private helper that returns where a post's chunk sits in the chunk arrays */
+	private int chunkOf(int postID) {
+		return (postID >>> CHUNK_BITS) - firstChunk;
+	}
+
+	/**
+	 * Private helper that drops a chunk once every post in it has been handed out and freed, and rebases the chunk
+	 * arrays once more than half of their leading entries are dropped chunks.
+	 */
+	private void dropChunkIfFreed(int chunk) {
+		boolean fullyHandedOut = ((chunk + firstChunk + 1) << CHUNK_BITS) <= nextPostID;
+		if (liveCounts[chunk] > 0 || !fullyHandedOut) {
+			return;
+		}
+		referenceCounts[chunk] = null;
+		longValues[chunk] = null;
+		objectValues[chunk] = null;
+
+		int dropped = 0;
+		while (dropped < referenceCounts.length && referenceCounts[dropped] == null
+				&& ((dropped + firstChunk + 1) << CHUNK_BITS) <= nextPostID) {
+			dropped++;
+		}
+		if (dropped > referenceCounts.length / 2) {
+			int newLength = Math.max(4, referenceCounts.length - dropped);
+			referenceCounts = Arrays.copyOf(Arrays.copyOfRange(referenceCounts, dropped, referenceCounts.length), newLength);
+			longValues = Arrays.copyOf(Arrays.copyOfRange(longValues, dropped, longValues.length), newLength);
+			objectValues = Arrays.copyOf(Arrays.copyOfRange(objectValues, dropped, objectValues.length), newLength);
+			liveCounts = Arrays.copyOf(Arrays.copyOfRange(liveCounts, dropped, liveCounts.length), newLength);
+			firstChunk += dropped;
+		}
+	}
+
+	private void checkPost(int postID) {
+		if (!contains(postID)) {
+			throw new IllegalArgumentException("No stored post with ID " + postID);
+		}
+	}
+}
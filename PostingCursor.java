@@ -0,0 +1,109 @@
+/**
+ * PostingCursor walks a PostingList from its newest post to its oldest, decoding one block at a time.
+ * advanceTo() uses the list's block skip pointers to jump over whole blocks, so the PostIndex can intersect several
+ * lists in lockstep without decoding the blocks that cannot hold a match.
+ */
+public class PostingCursor
+{
+	private final PostingList list;
+	private final int[] postIDs;
+	private final int[] positionStarts;
+	private int[] positions;
+	private int block;
+	private int index;
+	private int decodedBlockCount;
+
+	/** Constructor that places the cursor on the newest post of the list */
+	public PostingCursor(PostingList list) {
+		this.list = list;
+		postIDs = new int[PostingList.BLOCK_SIZE];
+		positionStarts = new int[PostingList.BLOCK_SIZE + 1];
+		positions = new int[0];
+		block = list.getBlockCount() - 1;
+		if (block >= 0) {
+			index = decode(block) - 1;
+		}
+	}
+
+	/** Returns true once the cursor has moved past the oldest post of the list */
+	public boolean isExhausted() {
+		return block < 0;
+	}
+
+	/** Returns the post ID the cursor is on */
+	public int getPostID() {
+		return postIDs[index];
+	}
+
+	/** Returns the number of positions of the term in the current post */
+	public int getPositionCount() {
+		return positionStarts[index + 1] - positionStarts[index];
+	}
+
+	/** Returns the position at the given index of the term in the current post */
+	public int getPosition(int i) {
+		return positions[positionStarts[index] + i];
+	}
+
+	/** Returns true if the term is at the given position in the current post */
+	public boolean hasPosition(int position) {
+		for (int i = positionStarts[index]; i < positionStarts[index + 1] && positions[i] <= position; i++) {
+			if (positions[i] == position) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Moves to the next older post */
+	public void previous() {
+		if (index > 0) {
+			index--;
+		}
+		else if (--block >= 0) {
+			index = decode(block) - 1;
+		}
+	}
+
+	/** Moves to the newest post whose ID is at most the target, skipping whole blocks where it can */
+	public void advanceTo(int target) {
+		if (isExhausted() || postIDs[index] <= target) {
+			return;
+		}
+		if (target < list.getBlockFirstPostID(block)) {
+			block = list.findBlock(target);
+			if (block < 0) {
+				return;
+			}
+			index = decode(block) - 1;
+		}
+
+		// binary search the decoded block for the last post at or before the target
+		int low = 0;
+		int high = index;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (postIDs[middle] <= target) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		index = low;
+	}
+
+	/** Returns the number of blocks decoded so far, a measure of the work the cursor has done */
+	public int getDecodedBlockCount() {
+		return decodedBlockCount;
+	}
+
+	/** Private helper that decodes a block and returns the number of posts in it */
+	private int decode(int block) {
+		decodedBlockCount++;
+		if (positions.length < list.getBlockByteLength(block)) {
+			positions = new int[list.getBlockByteLength(block)];
+		}
+		return list.readBlock(block, postIDs, positionStarts, positions);
+	}
+}
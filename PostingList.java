@@ -0,0 +1,190 @@
+import java.util.Arrays;
+
+/**
+ * PostingList records, for a single term of the PostIndex, every post the term appears in and the positions of the
+ * term within each post. Post IDs only ever grow, so entries are delta encoded as variable length bytes in one
+ * primitive byte array, in blocks of BLOCK_SIZE posts. The first post ID and starting offset of each block are kept
+ * uncompressed as skip pointers, which lets a PostingCursor decode from the newest block backwards and jump straight
+ * to the block holding a post with a binary search.
+ * Each entry is [post ID delta][position count][position deltas...].
+ * Adding only ever writes past the end of what has been written, so a snapshot() can be read without a lock while
+ * posts keep being added to the list it was taken from.
+ */
+public class PostingList
+{
+	public static final int BLOCK_SIZE = 128;
+
+	private byte[] data;
+	private int dataLength;
+	private int[] blockFirstPostIDs;
+	private int[] blockOffsets;
+	private int blockCount;
+	private int lastBlockSize;
+	private int lastPostID;
+	private int postCount;
+
+	public PostingList() {
+		data = new byte[16];
+		blockFirstPostIDs = new int[1];
+		blockOffsets = new int[1];
+	}
+
+	/** Adds a post and the positions of the term within it. Post IDs must be added in increasing order */
+	public void add(int postID, int[] positions, int positionCount) {
+		if (blockCount == 0 || lastBlockSize == BLOCK_SIZE) {
+			if (blockCount == blockFirstPostIDs.length) {
+				blockFirstPostIDs = Arrays.copyOf(blockFirstPostIDs, blockCount * 2);
+				blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+			}
+			blockFirstPostIDs[blockCount] = postID;
+			blockOffsets[blockCount] = dataLength;
+			blockCount++;
+			lastBlockSize = 0;
+			lastPostID = postID;
+		}
+
+		writeVarInt(postID - lastPostID);
+		writeVarInt(positionCount);
+		int lastPosition = 0;
+		for (int i = 0; i < positionCount; i++) {
+			writeVarInt(positions[i] - lastPosition);
+			lastPosition = positions[i];
+		}
+
+		lastPostID = postID;
+		lastBlockSize++;
+		postCount++;
+	}
+
+	/** Returns a read-only copy of the list as it is now, sharing its arrays instead of copying them */
+	public PostingList snapshot() {
+		PostingList snapshot = new PostingList();
+		snapshot.data = data;
+		snapshot.dataLength = dataLength;
+		snapshot.blockFirstPostIDs = blockFirstPostIDs;
+		snapshot.blockOffsets = blockOffsets;
+		snapshot.blockCount = blockCount;
+		snapshot.lastBlockSize = lastBlockSize;
+		snapshot.lastPostID = lastPostID;
+		snapshot.postCount = postCount;
+		return snapshot;
+	}
+
+	/** Returns a new list holding only the posts that are still in the message store */
+	public PostingList withoutFreedPosts(MessageStore messageStore) {
+		PostingList pruned = new PostingList();
+		int[] postIDs = new int[BLOCK_SIZE];
+		int[] positionStarts = new int[BLOCK_SIZE + 1];
+		int[] positions = new int[0];
+		for (int block = 0; block < blockCount; block++) {
+			if (positions.length < getBlockByteLength(block)) {
+				positions = new int[getBlockByteLength(block)];
+			}
+			int size = readBlock(block, postIDs, positionStarts, positions);
+			for (int i = 0; i < size; i++) {
+				if (messageStore.contains(postIDs[i])) {
+					int positionCount = positionStarts[i + 1] - positionStarts[i];
+					pruned.add(postIDs[i], Arrays.copyOfRange(positions, positionStarts[i], positionStarts[i + 1]),
+						positionCount);
+				}
+			}
+		}
+		return pruned;
+	}
+
+	/** Returns the number of posts in the list */
+	public int size() {
+		return postCount;
+	}
+
+	/** Returns the number of blocks in the list */
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	/** Returns the number of posts in the given block */
+	public int getBlockSize(int block) {
+		return block == blockCount - 1 ? lastBlockSize : BLOCK_SIZE;
+	}
+
+	/** Returns the first post ID of the given block */
+	public int getBlockFirstPostID(int block) {
+		return blockFirstPostIDs[block];
+	}
+
+	/** Returns the number of encoded bytes in the block, which bounds the number of positions it holds */
+	public int getBlockByteLength(int block) {
+		return (block == blockCount - 1 ? dataLength : blockOffsets[block + 1]) - blockOffsets[block];
+	}
+
+	/**
+	 * Decodes a block, oldest post first, and returns how many posts it holds. The positions of the post at index i
+	 * are written to positions from positionStarts[i] up to positionStarts[i + 1]; positions must hold at least
+	 * getBlockByteLength(block) entries.
+	 */
+	public int readBlock(int block, int[] postIDs, int[] positionStarts, int[] positions) {
+		int postID = blockFirstPostIDs[block];
+		int size = getBlockSize(block);
+		int[] cursor = {blockOffsets[block]};
+		int positionIndex = 0;
+		for (int i = 0; i < size; i++) {
+			postID += readVarInt(cursor);
+			postIDs[i] = postID;
+			positionStarts[i] = positionIndex;
+			int positionCount = readVarInt(cursor);
+			int position = 0;
+			for (int p = 0; p < positionCount; p++) {
+				position += readVarInt(cursor);
+				positions[positionIndex++] = position;
+			}
+		}
+		positionStarts[size] = positionIndex;
+		return size;
+	}
+
+	/** Returns the last block starting at or before the post ID, or -1 if the post is older than the whole list */
+	public int findBlock(int postID) {
+		int low = 0;
+		int high = blockCount - 1;
+		int found = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (blockFirstPostIDs[middle] <= postID) {
+				found = middle;
+				low = middle + 1;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		return found;
+	}
+
+	/** Returns the estimated number of heap bytes used by the list */
+	public long getMemoryUsage() {
+		return 64L + data.length + 8L * blockFirstPostIDs.length;
+	}
+
+	private void writeVarInt(int value) {
+		if (dataLength + 5 > data.length) {
+			data = Arrays.copyOf(data, data.length * 2);
+		}
+		while ((value & ~0x7F) != 0) {
+			data[dataLength++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[dataLength++] = (byte) value;
+	}
+
+	private int readVarInt(int[] cursor) {
+		int value = 0;
+		int shift = 0;
+		byte current;
+		do {
+			current = data[cursor[0]++];
+			value |= (current & 0x7F) << shift;
+			shift += 7;
+		} while ((current & 0x80) != 0);
+		return value;
+	}
+}
@@ -0,0 +1,74 @@
+import java.io.File;
+
+/**
+ * RetentionPolicy holds the limits the FeedTrimmer enforces on news feeds: a maximum number of posts per feed,
+ * a maximum post age, and a total memory budget for all feeds, the message store and the PostIndex.
+ * A limit of 0 means unlimited.
+ * When the memory budget is exceeded, the feeds that were read least recently are evicted whole, either dropped
+ * or written to the archive directory if one is set. Archived posts are read back into a feed when its User reads
+ * that far back again, for as long as the program runs.
+ */
+public class RetentionPolicy
+{
+	private int maxEntriesPerFeed;
+	private long maxAgeMillis;
+	private long memoryBudgetBytes;
+	private File archiveDirectory;
+
+	/** Constructor for a policy with no limits */
+	public RetentionPolicy() {
+	}
+
+	/** Creates a policy from the "minitwitter.retention.*" system properties: maxEntries, maxAgeMillis,
+	 * memoryBudgetBytes and archiveDir
+	 */
+	public static RetentionPolicy fromSystemProperties() {
+		RetentionPolicy policy = new RetentionPolicy();
+		policy.setMaxEntriesPerFeed(Integer.getInteger("minitwitter.retention.maxEntries", 0));
+		policy.setMaxAgeMillis(Long.getLong("minitwitter.retention.maxAgeMillis", 0));
+		policy.setMemoryBudgetBytes(Long.getLong("minitwitter.retention.memoryBudgetBytes", 0));
+		String archiveDirectory = System.getProperty("minitwitter.retention.archiveDir");
+		if (archiveDirectory != null) {
+			policy.setArchiveDirectory(new File(archiveDirectory));
+		}
+		return policy;
+	}
+
+	public int getMaxEntriesPerFeed() {
+		return maxEntriesPerFeed;
+	}
+
+	public void setMaxEntriesPerFeed(int maxEntriesPerFeed) {
+		this.maxEntriesPerFeed = maxEntriesPerFeed;
+	}
+
+	public long getMaxAgeMillis() {
+		return maxAgeMillis;
+	}
+
+	public void setMaxAgeMillis(long maxAgeMillis) {
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	public long getMemoryBudgetBytes() {
+		return memoryBudgetBytes;
+	}
+
+	public void setMemoryBudgetBytes(long memoryBudgetBytes) {
+		this.memoryBudgetBytes = memoryBudgetBytes;
+	}
+
+	/** Returns the directory evicted feeds are written to, or null if they are dropped */
+	public File getArchiveDirectory() {
+		return archiveDirectory;
+	}
+
+	public void setArchiveDirectory(File archiveDirectory) {
+		this.archiveDirectory = archiveDirectory;
+	}
+
+	/** Returns true if the policy sets no limits, so there is nothing to trim */
+	public boolean isUnlimited() {
+		return maxEntriesPerFeed <= 0 && maxAgeMillis <= 0 && memoryBudgetBytes <= 0;
+	}
+}
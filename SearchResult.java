@@ -0,0 +1,30 @@
+/**
+ * SearchResult holds the post IDs a PostIndex search found, newest first. A search that runs out of its scan budget
+ * before finding as many posts as asked for stops early, and the result is then marked incomplete: every post in it
+ * matches and nothing newer was missed, but older matches may exist.
+ */
+public class SearchResult
+{
+	private final int[] postIDs;
+	private final boolean complete;
+
+	public SearchResult(int[] postIDs, boolean complete) {
+		this.postIDs = postIDs;
+		this.complete = complete;
+	}
+
+	/** Returns the IDs of the matching posts, newest first */
+	public int[] getPostIDs() {
+		return postIDs;
+	}
+
+	/** Returns the number of matching posts found */
+	public int size() {
+		return postIDs.length;
+	}
+
+	/** Returns false if the search stopped at its scan budget, so older matches may have been left out */
+	public boolean isComplete() {
+		return complete;
+	}
+}
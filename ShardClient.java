@@ -0,0 +1,121 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ShardClient is a connection to one ShardServer over a local socket. Requests and responses are both a list of
+ * Strings, written as a count followed by each String as a length and its UTF-8 bytes; a response starts with "OK"
+ * or "ERROR". A message may have at most MAX_PARTS Strings and MAX_MESSAGE_BYTES bytes of text, so a corrupt or
+ * hostile frame cannot make the reader allocate without bound.
+ * If the connection fails part way through a call, the client closes it, since the two ends may no longer agree on
+ * where the next message starts, and the next call connects again.
+ * Calls are synchronized, so a client can be shared by several threads.
+ */
+public class ShardClient implements Closeable
+{
+	public static final int MAX_PARTS = 1 << 20;
+	public static final int MAX_MESSAGE_BYTES = 64 << 20;
+
+	private final int port;
+	private Socket socket;
+	private DataInputStream in;
+	private DataOutputStream out;
+
+	/** Constructor that connects to the shard listening on the given local port */
+	public ShardClient(int port) throws IOException {
+		this.port = port;
+		connect();
+	}
+
+	/** Sends a request and returns the response without its "OK" status, throwing if the shard reports an error */
+	public synchronized String[] call(String... request) throws IOException {
+		if (request.length == 0) {
+			throw new IllegalArgumentException("Empty shard request");
+		}
+		if (socket.isClosed()) {
+			connect();
+		}
+
+		String[] response;
+		try {
+			writeMessage(out, request);
+			response = readMessage(in);
+		}
+		catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		if (response.length == 0 || !response[0].equals("OK")) {
+			throw new IOException("Shard request " + request[0] + " failed: "
+				+ (response.length > 1 ? response[1] : "no response"));
+		}
+		String[] result = new String[response.length - 1];
+		System.arraycopy(response, 1, result, 0, result.length);
+		return result;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		socket.close();
+	}
+
+	/**
+	 * Writes a message as a count followed by each String's length and UTF-8 bytes. A message over the limits is
+	 * rejected before anything is written, so the stream stays usable.
+	 */
+	public static void writeMessage(DataOutputStream out, String[] message) throws IOException {
+		if (message.length > MAX_PARTS) {
+			throw new IOException("Message of " + message.length + " parts is over the limit of " + MAX_PARTS);
+		}
+		byte[][] parts = new byte[message.length][];
+		long totalBytes = 0;
+		for (int i = 0; i < message.length; i++) {
+			parts[i] = message[i].getBytes(StandardCharsets.UTF_8);
+			totalBytes += parts[i].length;
+		}
+		if (totalBytes > MAX_MESSAGE_BYTES) {
+			throw new IOException("Message of " + totalBytes + " bytes is over the limit of " + MAX_MESSAGE_BYTES);
+		}
+
+		out.writeInt(parts.length);
+		for (byte[] part : parts) {
+			out.writeInt(part.length);
+			out.write(part);
+		}
+		out.flush();
+	}
+
+	/** Reads a message written by writeMessage(), throwing if its frame is malformed or over the limits */
+	public static String[] readMessage(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > MAX_PARTS) {
+			throw new IOException("Malformed message with " + count + " parts");
+		}
+		String[] message = new String[count];
+		long remainingBytes = MAX_MESSAGE_BYTES;
+		for (int i = 0; i < message.length; i++) {
+			int length = in.readInt();
+			if (length < 0 || length > remainingBytes) {
+				throw new IOException("Malformed message part of " + length + " bytes");
+			}
+			remainingBytes -= length;
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			message[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return message;
+	}
+
+	/** Private helper that opens the socket and its streams */
+	private void connect() throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+}
@@ -0,0 +1,73 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShardLauncher starts a sharded deployment on one machine, launching each ShardServer as its own JVM process,
+ * then runs a small workload through a ShardedUserGraph and prints the merged analysis and a news feed.
+ * Every other User is named "user", to show that Users with the same name stay separate.
+ * Run with: java ShardLauncher [shardCount] [basePort] [userCount]
+ */
+public class ShardLauncher
+{
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int basePort = args.length > 1 ? Integer.parseInt(args[1]) : 7400;
+		int userCount = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+		List<Process> processes = new ArrayList<>();
+		String javaCommand = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		for (int i = 0; i < shardCount; i++) {
+			processes.add(new ProcessBuilder(javaCommand, "-cp", System.getProperty("java.class.path"), "ShardServer",
+				String.valueOf(i), String.valueOf(shardCount), String.valueOf(basePort)).inheritIO().start());
+		}
+
+		try (ShardedUserGraph graph = connect(shardCount, basePort)) {
+			User[] users = new User[userCount];
+			for (int i = 0; i < userCount; i++) {
+				users[i] = new User(i % 2 == 0 ? "user" : "user" + i);
+				graph.createUser(users[i]);
+			}
+			for (int i = 0; i < userCount; i++) {
+				graph.followUser(users[i], users[(i + 1) % userCount]);
+				graph.followUser(users[i], users[(i + 7) % userCount]);
+			}
+			for (int i = 0; i < userCount; i++) {
+				graph.post(users[i], i % 2 == 0 ? "What a great day" : "Stuck in traffic again");
+			}
+
+			AnalysisVisitor visitor = graph.analyze();
+			System.out.println("Total Users: " + visitor.getUserCount());
+			System.out.println("Total Messages: " + visitor.getNewsFeedCount());
+			System.out.println("Positive Message Percentage: " + visitor.getPositivePercentage() + "%");
+			System.out.println("News Feed of the first User: " + graph.getNewsFeed(users[0], 10));
+
+			graph.shutdown();
+		}
+		finally {
+			for (Process process : processes) {
+				if (!process.waitFor(5, TimeUnit.SECONDS)) {
+					process.destroy();
+				}
+			}
+		}
+	}
+
+	/** Private helper that retries connecting while the shard processes start up */
+	private static ShardedUserGraph connect(int shardCount, int basePort) throws IOException, InterruptedException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return new ShardedUserGraph(shardCount, basePort);
+			}
+			catch (ConnectException e) {
+				if (attempt == 50) {
+					throw e;
+				}
+				Thread.sleep(200);
+			}
+		}
+	}
+}
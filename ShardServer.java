@@ -0,0 +1,295 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * ShardServer is one process of the sharded deployment. Users are hash-partitioned by their ID across the shards,
+ * and each shard keeps the Users it owns, with their news feeds, in its own JVM. Names are only carried along for
+ * display, since two Users may share a name.
+ * A User owned by another shard is represented locally by a stand-in User with the same ID and name, so follow lists
+ * and Posts can refer to it; stand-ins never receive posts and are left out of analysis.
+ * When an owned User posts, the shard delivers to its local followers and forwards the post once to every other
+ * shard that owns some of the followers.
+ * Run with: java ShardServer shardID shardCount basePort, where shard i listens on local port basePort + i.
+ */
+public class ShardServer
+{
+	/** The most followers named in one DELIVER request */
+	private static final int DELIVER_BATCH_SIZE = 1 << 16;
+
+	private final int shardID;
+	private final int shardCount;
+	private final int basePort;
+	private final Map<UUID, User> ownedUsers;
+	private final Map<UUID, User> standIns;
+	private final ShardClient[] peers;
+	private ServerSocket serverSocket;
+
+	public ShardServer(int shardID, int shardCount, int basePort) {
+		this.shardID = shardID;
+		this.shardCount = shardCount;
+		this.basePort = basePort;
+		ownedUsers = new HashMap<>();
+		standIns = new HashMap<>();
+		peers = new ShardClient[shardCount];
+	}
+
+	public static void main(String[] args) throws IOException {
+		new ShardServer(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2])).serve();
+	}
+
+	/** Returns the shard that owns the User with the given ID */
+	public static int shardOf(UUID userID, int shardCount) {
+		return Math.floorMod(userID.hashCode(), shardCount);
+	}
+
+	/** Accepts connections until a SHUTDOWN request arrives, handling each connection on its own thread */
+	public void serve() throws IOException {
+		serverSocket = new ServerSocket(basePort + shardID, 50, InetAddress.getLoopbackAddress());
+		System.out.println("Shard " + shardID + " of " + shardCount + " listening on port " + (basePort + shardID));
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch (IOException e) {
+				break;
+			}
+			Thread connectionThread = new Thread(() -> handleConnection(socket), "shard-" + shardID + "-connection");
+			connectionThread.setDaemon(true);
+			connectionThread.start();
+		}
+	}
+
+	/** Private helper that answers requests on one connection until it closes */
+	private void handleConnection(Socket socket) {
+		try (Socket connection = socket) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+			while (true) {
+				String[] request;
+				try {
+					request = ShardClient.readMessage(in);
+				}
+				catch (EOFException e) {
+					return;
+				}
+
+				String[] response;
+				try {
+					response = handle(request);
+				}
+				catch (RuntimeException | IOException e) {
+					response = new String[] {"ERROR", String.valueOf(e.getMessage())};
+				}
+				ShardClient.writeMessage(out, response);
+
+				if (request.length > 0 && request[0].equals("SHUTDOWN")) {
+					serverSocket.close();
+					return;
+				}
+			}
+		}
+		catch (IOException e) {
+			System.out.println("Shard " + shardID + " connection closed: " + e.getMessage());
+		}
+	}
+
+	/** Private helper that runs a single request and returns its response */
+	private String[] handle(String[] request) throws IOException {
+		if (request.length == 0) {
+			throw new IllegalArgumentException("Empty request");
+		}
+		switch (request[0]) {
+			case "CREATE":
+				checkLength(request, 3);
+				return createUser(UUID.fromString(request[1]), request[2]);
+			case "FOLLOW":
+				checkLength(request, 4);
+				return followUser(UUID.fromString(request[1]), UUID.fromString(request[2]), request[3]);
+			case "ADD_FOLLOWER":
+				checkLength(request, 4);
+				return addFollower(UUID.fromString(request[1]), UUID.fromString(request[2]), request[3]);
+			case "POST":
+				checkLength(request, 3);
+				return post(UUID.fromString(request[1]), request[2]);
+			case "DELIVER":
+				checkLength(request, 4);
+				return deliver(request);
+			case "FEED":
+				checkLength(request, 3);
+				return getNewsFeed(UUID.fromString(request[1]), Integer.parseInt(request[2]));
+			case "ANALYZE":
+				return analyze();
+			case "SHUTDOWN":
+				return new String[] {"OK"};
+			default:
+				throw new IllegalArgumentException("Unknown request " + request[0]);
+		}
+	}
+
+	/** CREATE id name: creates a User owned by this shard. Creating the same ID again does nothing */
+	private synchronized String[] createUser(UUID id, String name) {
+		if (shardOf(id, shardCount) != shardID) {
+			throw new IllegalArgumentException("Shard " + shardID + " does not own User " + id);
+		}
+		if (!ownedUsers.containsKey(id)) {
+			User standIn = standIns.remove(id);
+			ownedUsers.put(id, standIn != null ? standIn : newUser(id, name));
+		}
+		return new String[] {"OK"};
+	}
+
+	/**
+	 * FOLLOW followerID followedID followedName: the owned follower starts following followed, which may be a
+	 * stand-in
+	 */
+	private synchronized String[] followUser(UUID followerID, UUID followedID, String followedName) {
+		getOwnedUser(followerID).followUser(getUser(followedID, followedName));
+		return new String[] {"OK"};
+	}
+
+	/** ADD_FOLLOWER followedID followerID followerName: records a follower from another shard on an owned User */
+	private synchronized String[] addFollower(UUID followedID, UUID followerID, String followerName) {
+		getOwnedUser(followedID).addFollower(getUser(followerID, followerName));
+		return new String[] {"OK"};
+	}
+
+	/**
+	 * POST authorID message: delivers to the author's followers on this shard, then forwards DELIVER requests to
+	 * each other shard that owns followers, DELIVER_BATCH_SIZE followers at a time so a request stays within the
+	 * ShardClient message limits. Forwarding happens outside the shard's lock, so two shards posting to each other's
+	 * Users at the same time cannot deadlock.
+	 */
+	private String[] post(UUID authorID, String message) throws IOException {
+		Map<Integer, List<String>> remoteFollowers = new HashMap<>();
+		String authorName;
+		synchronized (this) {
+			User author = getOwnedUser(authorID);
+			authorName = author.getName();
+			List<User> localFollowers = new ArrayList<>();
+			for (User follower : author.getFollowers()) {
+				if (ownedUsers.get(follower.getID()) == follower) {
+					localFollowers.add(follower);
+				}
+				else {
+					remoteFollowers.computeIfAbsent(shardOf(follower.getID(), shardCount), key -> new ArrayList<>())
+						.add(follower.getID().toString());
+				}
+			}
+			deliverLocally(author, message, localFollowers);
+		}
+
+		for (Map.Entry<Integer, List<String>> entry : remoteFollowers.entrySet()) {
+			List<String> followers = entry.getValue();
+			for (int from = 0; from < followers.size(); from += DELIVER_BATCH_SIZE) {
+				List<String> request = new ArrayList<>();
+				request.add("DELIVER");
+				request.add(authorID.toString());
+				request.add(authorName);
+				request.add(message);
+				request.addAll(followers.subList(from, Math.min(followers.size(), from + DELIVER_BATCH_SIZE)));
+				getPeer(entry.getKey()).call(request.toArray(new String[0]));
+			}
+		}
+		return new String[] {"OK"};
+	}
+
+	/**
+	 * DELIVER authorID authorName message followerID...: adds a post from another shard's User to owned followers'
+	 * news feeds
+	 */
+	private synchronized String[] deliver(String[] request) {
+		User author = getUser(UUID.fromString(request[1]), request[2]);
+		List<User> followers = new ArrayList<>();
+		for (int i = 4; i < request.length; i++) {
+			followers.add(getOwnedUser(UUID.fromString(request[i])));
+		}
+		deliverLocally(author, request[3], followers);
+		return new String[] {"OK"};
+	}
+
+	/** FEED id limit: returns up to limit of the newest posts in an owned User's news feed, as "author: message" */
+	private synchronized String[] getNewsFeed(UUID id, int limit) {
+		FeedPage page = getOwnedUser(id).getNewsFeed().getNewest(limit);
+		String[] response = new String[page.size() + 1];
+		response[0] = "OK";
+		for (int i = 0; i < page.size(); i++) {
+			Post post = page.get(i);
+			response[i + 1] = post.getAuthor().getName() + ": " + post.getMessage();
+		}
+		return response;
+	}
+
+	/** ANALYZE: returns the user, news feed and positive message counts for the Users this shard owns */
+	private synchronized String[] analyze() {
+		AnalysisVisitor visitor = new AnalysisVisitor();
+		for (User user : ownedUsers.values()) {
+			user.accept(visitor);
+		}
+		return new String[] {"OK", String.valueOf(visitor.getUserCount()), String.valueOf(visitor.getNewsFeedCount()),
+			String.valueOf(visitor.getPositiveCount())};
+	}
+
+	/** Private helper that stores the post once for this shard and appends it to each follower's news feed */
+	private void deliverLocally(User author, String message, List<User> followers) {
+		if (followers.isEmpty()) {
+			return;
+		}
+		int postID = User.getMessageStore().store(author, message, followers.size());
+		PostIndex.getInstance().add(postID, author, message);
+		for (User follower : followers) {
+			follower.updateNewsFeed(postID);
+		}
+	}
+
+	/** Private helper that throws if a request has fewer parts than its operation needs */
+	private static void checkLength(String[] request, int length) {
+		if (request.length < length) {
+			throw new IllegalArgumentException("Request " + request[0] + " needs " + (length - 1) + " arguments, got "
+				+ (request.length - 1));
+		}
+	}
+
+	private User getOwnedUser(UUID id) {
+		User user = ownedUsers.get(id);
+		if (user == null) {
+			throw new IllegalArgumentException("Shard " + shardID + " does not own User " + id);
+		}
+		return user;
+	}
+
+	/** Private helper that returns the owned User with the given ID, or its stand-in if another shard owns it */
+	private User getUser(UUID id, String name) {
+		User user = ownedUsers.get(id);
+		if (user != null) {
+			return user;
+		}
+		return standIns.computeIfAbsent(id, key -> newUser(id, name));
+	}
+
+	/** Private helper that creates a local User carrying the ID it was given by the client */
+	private static User newUser(UUID id, String name) {
+		User user = new User(name);
+		user.setID(id);
+		return user;
+	}
+
+	private synchronized ShardClient getPeer(int peerID) throws IOException {
+		if (peers[peerID] == null) {
+			peers[peerID] = new ShardClient(basePort + peerID);
+		}
+		return peers[peerID];
+	}
+}
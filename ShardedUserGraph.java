@@ -0,0 +1,81 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ShardedUserGraph is the client side of the sharded deployment. It routes each operation to the ShardServer that
+ * owns the Users involved, by the hash of each User's ID: a follow goes to the follower's shard, and also to the
+ * followed User's shard when it is a different one, while a post goes to the author's shard, which handles the
+ * fan-out. Analysis asks every shard for its counts and merges them into a single AnalysisVisitor.
+ * The Users passed in are only handles here: their ID says where they live and their name is carried for display,
+ * while their follow lists and news feeds are kept by the owning shard.
+ * The sharded deployment is a separate mode of running MiniTwitter, driven through this class as ShardLauncher
+ * shows. The Admin Panel, User Views and analysis buttons of the Swing UI still work on the single-process Users
+ * created in their own JVM, and do not go through the shards.
+ */
+public class ShardedUserGraph implements Closeable
+{
+	private final ShardClient[] shards;
+
+	/** Constructor that connects to shardCount shards listening on consecutive local ports from basePort */
+	public ShardedUserGraph(int shardCount, int basePort) throws IOException {
+		shards = new ShardClient[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new ShardClient(basePort + i);
+		}
+	}
+
+	public void createUser(User user) throws IOException {
+		shardFor(user).call("CREATE", user.getID().toString(), user.getName());
+	}
+
+	public void followUser(User follower, User followed) throws IOException {
+		shardFor(follower).call("FOLLOW", follower.getID().toString(), followed.getID().toString(), followed.getName());
+		if (shardOf(follower) != shardOf(followed)) {
+			shardFor(followed).call("ADD_FOLLOWER", followed.getID().toString(), follower.getID().toString(),
+				follower.getName());
+		}
+	}
+
+	public void post(User author, String message) throws IOException {
+		shardFor(author).call("POST", author.getID().toString(), message);
+	}
+
+	/** Returns up to limit of the newest posts in the User's news feed, formatted as "author: message" */
+	public List<String> getNewsFeed(User user, int limit) throws IOException {
+		return Arrays.asList(shardFor(user).call("FEED", user.getID().toString(), String.valueOf(limit)));
+	}
+
+	/** Collects the user, message and positive message counts from every shard into one visitor */
+	public AnalysisVisitor analyze() throws IOException {
+		AnalysisVisitor visitor = new AnalysisVisitor();
+		for (ShardClient shard : shards) {
+			String[] counts = shard.call("ANALYZE");
+			visitor.addCounts(Integer.parseInt(counts[0]), 0, Integer.parseInt(counts[1]), Integer.parseInt(counts[2]));
+		}
+		return visitor;
+	}
+
+	/** Asks every shard to stop */
+	public void shutdown() throws IOException {
+		for (ShardClient shard : shards) {
+			shard.call("SHUTDOWN");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (ShardClient shard : shards) {
+			shard.close();
+		}
+	}
+
+	private int shardOf(User user) {
+		return ShardServer.shardOf(user.getID(), shards.length);
+	}
+
+	private ShardClient shardFor(User user) {
+		return shards[shardOf(user)];
+	}
+}
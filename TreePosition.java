@@ -0,0 +1,68 @@
+/**
+ * TreePosition records where a User or UserGroup sits in the group tree, for the GroupMembershipIndex.
+ * Besides the parent group and depth, each node has an interval of labels from an Euler tour of the tree:
+ * a node's interval contains the intervals of everything below it, so ancestry is a comparison of two intervals.
+ * Labels are spaced out so new members can usually be numbered without touching the rest of the tree.
+ */
+public class TreePosition
+{
+	private UserGroup parentGroup;
+	private int depth;
+	private long enterLabel;
+	private long exitLabel;
+	private long nextChildLabel;
+	private boolean indexed;
+
+	/** Returns the group directly containing the node, or null for a top-level group or a User in no group */
+	public UserGroup getParentGroup() {
+		return parentGroup;
+	}
+
+	public void setParentGroup(UserGroup parentGroup) {
+		this.parentGroup = parentGroup;
+	}
+
+	/** Returns the number of groups above the node */
+	public int getDepth() {
+		return depth;
+	}
+
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	public long getEnterLabel() {
+		return enterLabel;
+	}
+
+	public long getExitLabel() {
+		return exitLabel;
+	}
+
+	/** Sets the node's label interval, leaving all of it free for children */
+	public void setLabels(long enterLabel, long exitLabel) {
+		this.enterLabel = enterLabel;
+		this.exitLabel = exitLabel;
+		this.nextChildLabel = enterLabel + 1;
+		this.indexed = true;
+	}
+
+	/** Returns the first label after the node's last child, where the next child's interval can start */
+	public long getNextChildLabel() {
+		return nextChildLabel;
+	}
+
+	public void setNextChildLabel(long nextChildLabel) {
+		this.nextChildLabel = nextChildLabel;
+	}
+
+	/** Returns true once the node has labels in the index */
+	public boolean isIndexed() {
+		return indexed;
+	}
+
+	/** Returns true if the other position's interval lies inside this one's */
+	public boolean contains(TreePosition other) {
+		return indexed && other.indexed && enterLabel <= other.enterLabel && other.exitLabel <= exitLabel;
+	}
+}
@@ -10,12 +10,15 @@ import java.util.UUID;
 public class User implements UserInterface
 {
 	private UUID userID;
+	private int userIndex;
 	private String name;
 	private List<User> followers;
 	private List<User> following;
-	private List<String> newsFeed;
+	private NewsFeed newsFeed;
+	private TreePosition treePosition;
 	private String twitterPost;
 	private static List<User> createdUsers = new ArrayList<>();
+	private static MessageStore messageStore = MessageStore.create();
 
 	private long creationTime;
 	private long lastUpdateTime;
@@ -29,9 +32,13 @@ public class User implements UserInterface
 		setID(UUID.randomUUID());
 		followers = new ArrayList<>();
 		following = new ArrayList<>();
-		newsFeed = new ArrayList<>();
+		newsFeed = new NewsFeed(messageStore);
+		treePosition = new TreePosition();
 		this.name = name;
-		createdUsers.add(this);
+		synchronized (createdUsers) {
+			userIndex = createdUsers.size();
+			createdUsers.add(this);
+		}
 		creationTime = System.currentTimeMillis();
 	}
 
@@ -45,10 +52,25 @@ public class User implements UserInterface
 		return userID;
 	}
 
+	/** Returns the position of this User in the created Users list, used as a compact author reference by Posts */
+	public int getIndex() {
+		return userIndex;
+	}
+
 	public String getName() {
 		return name;
 	}
 
+	/** Returns the group directly containing this User, or null if it has not been added to a group */
+	public UserGroup getParentGroup() {
+		return treePosition.getParentGroup();
+	}
+
+	@Override
+	public TreePosition getTreePosition() {
+		return treePosition;
+	}
+
 	public long getCreationTime() {
 		return this.creationTime;
 	}
@@ -57,14 +79,24 @@ public class User implements UserInterface
 		return this.lastUpdateTime;
 	}
 
-	/** followUser() implements the Observer behavior */
+	/**
+	 * followUser() implements the Observer behavior, and refreshes any cached follow suggestions the new edge changes.
+	 * Following a User that is already followed does nothing.
+	 */
 	public void followUser(User userToFollow) {
+		if (following.contains(userToFollow)) {
+			return;
+		}
 		following.add(userToFollow);
 		userToFollow.addFollower(this);
+		FollowRecommender.getInstance().followEdgeAdded(this, userToFollow);
 	}
 
-	/** addFollower() implements the Observable behavior */
+	/** addFollower() implements the Observable behavior, ignoring a follower that is already recorded */
 	public void addFollower(User follower) {
+		if (followers.contains(follower)) {
+			return;
+		}
 		followers.add(follower);
 	}
 
@@ -85,19 +117,33 @@ public class User implements UserInterface
 		return post;
 	}
 
+	/** Stores the message once in the message store, with one reference per follower's news feed,
+	 * and adds it to the search index. A post with no followers reaches no feed, so it is neither stored nor indexed
+	 */
 	private void updateFollowers() {
+		if (followers.isEmpty()) {
+			return;
+		}
+		int postID = messageStore.store(this, twitterPost, followers.size());
+		PostIndex.getInstance().add(postID, this, twitterPost);
 		for (User follower : followers) {
-			follower.updateNewsFeed(this, twitterPost);
+			follower.updateNewsFeed(postID);
 		}
 	}
 
-	public void updateNewsFeed(User poster, String update) {
+	public void updateNewsFeed(int postID) {
 		lastUpdateTime = System.currentTimeMillis();
-		newsFeed.add(poster.getName() + ": " + update);
+		newsFeed.append(postID);
 	}
 
-	/** Returns list of news feed messages */
-	public List<String> getNewsFeed() {
+	/** Adds a batch of posts to the news feed in a single append, used by PostBatch */
+	public void updateNewsFeed(int[] postIDs, int count) {
+		lastUpdateTime = System.currentTimeMillis();
+		newsFeed.appendAll(postIDs, count);
+	}
+
+	/** Returns the read-only news feed, which can be read a page at a time with its cursor methods */
+	public NewsFeed getNewsFeed() {
 		return newsFeed;
 	}
 
@@ -106,6 +152,33 @@ public class User implements UserInterface
 		return createdUsers;
 	}
 
+	/** Returns the message store that holds the body of every post */
+	public static MessageStore getMessageStore() {
+		return messageStore;
+	}
+
+	/** Replaces the message store, switching between on-heap and off-heap modes. Only valid before any User is created */
+	public static void setMessageStore(MessageStore store) {
+		if (!createdUsers.isEmpty()) {
+			throw new IllegalStateException("The message store must be set before any User is created");
+		}
+		messageStore = store;
+	}
+
+	/** Returns a copy of the created Users list, safe to iterate from threads other than the UI's */
+	public static List<User> getCreatedUsersSnapshot() {
+		synchronized (createdUsers) {
+			return new ArrayList<>(createdUsers);
+		}
+	}
+
+	/** Returns the User at the given index of the created Users list */
+	public static User getUserByIndex(int index) {
+		synchronized (createdUsers) {
+			return createdUsers.get(index);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return getName();
@@ -10,6 +10,7 @@ public class UserGroup implements UserInterface
 {
 	private String groupName;
 	private List<UserInterface> userList;
+	private TreePosition treePosition;
 
 	private static List<UserGroup> createdGroups = new ArrayList<>();
 	private long creationTime;
@@ -20,7 +21,9 @@ public class UserGroup implements UserInterface
 	public UserGroup(String groupName) {
 		setID(groupName);
 		userList = new ArrayList<>();
+		treePosition = new TreePosition();
 		createdGroups.add(this);
+		GroupMembershipIndex.getInstance().addTopLevelGroup(this);
 	}
 
 	/** Group name setter method */
@@ -37,14 +40,31 @@ public class UserGroup implements UserInterface
 		return this.creationTime;
 	}
 
-	/** Adds a user to the UserInterface list */
+	/** Adds a user to the UserInterface list, and numbers it in the membership index */
 	public void addUser(User user) {
-		userList.add(user);
+		addMember(user);
 	}
 
-	/** Adds a UserGroup to the UserInterface list */
+	/** Adds a UserGroup to the UserInterface list, and numbers it and its members in the membership index */
 	public void addGroup(UserGroup group) {
-		userList.add(group);
+		addMember(group);
+	}
+
+	/** Returns the group directly containing this group, or null if it is a top-level group */
+	public UserGroup getParentGroup() {
+		return treePosition.getParentGroup();
+	}
+
+	@Override
+	public TreePosition getTreePosition() {
+		return treePosition;
+	}
+
+	private void addMember(UserInterface member) {
+		GroupMembershipIndex membershipIndex = GroupMembershipIndex.getInstance();
+		membershipIndex.checkCanAdd(this, member);
+		userList.add(member);
+		membershipIndex.memberAdded(this, member);
 	}
 
 	/** Returns the UserInterface list */
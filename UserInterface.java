@@ -8,6 +8,9 @@ public interface UserInterface {
 	/** Getter function for the String name of a User or UserGroup */
 	public String getName();
 
+	/** Returns the node's parent group, depth and labels in the GroupMembershipIndex */
+	public TreePosition getTreePosition();
+
 	/** Visitor function that is used recursively starting from the root, 
 	 * in order to access the total users, total user groups, total messages,
 	 * and positive message percentage.
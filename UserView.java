@@ -1,7 +1,9 @@
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 import javax.swing.BoxLayout;
@@ -21,9 +23,14 @@ public class UserView
 	private User user;
 	private JPanel userViewPanel;
 	private JTextPane followingText;
+	private JTextPane suggestionsText;
 	private JTextPane newsFeed;
 	private JTextPane lastUpdatedTime;
+	private Deque<String> displayedPosts;
+	private long feedCursor;
 	private static List<UserView> createdUserViews = new ArrayList<>();
+
+	private static final int NEWS_FEED_PAGE_SIZE = 50;
 	
 	/** 
 	 * Constructor: initializes panel and frame, adds all of the inner panels to the main panel
@@ -33,6 +40,7 @@ public class UserView
 		JFrame userFrame = new JFrame("User: " + user.getName() + " - Time Created: " + user.getCreationTime());
 
 		this.user = user;
+		displayedPosts = new ArrayDeque<>();
 
 		userFrame.setSize(600, 500);
 		userViewPanel.setLayout(new BoxLayout(userViewPanel, BoxLayout.Y_AXIS));
@@ -40,6 +48,7 @@ public class UserView
 		userViewPanel.add(getLastUpdatedTimePanel());
 		userViewPanel.add(getFollowUserPanel());
 		userViewPanel.add(getFollowingPanel());
+		userViewPanel.add(getSuggestionsPanel());
 		userViewPanel.add(getPostButtonPanel());
 		userViewPanel.add(getNewsFeedPanel());
 
@@ -62,16 +71,49 @@ public class UserView
 		followingText.setText(followingTextString);
 	}
 
-	/** Private helper that updates a string of a user's news feed, posted to a text pane */
+	/** Private helper that lists the users this user might want to follow, with how many followed users lead to each */
+	private void updateSuggestionsText() {
+		String suggestionsTextString = "Who to Follow:";
+		FollowSuggestions suggestions = FollowRecommender.getInstance().getSuggestions(user);
+		for (int i = 0; i < suggestions.size(); i++) {
+			suggestionsTextString += "\n";
+			suggestionsTextString += suggestions.getUser(i).getName() + " (followed by " + suggestions.getMutualCount(i) + " you follow)";
+		}
+		suggestionsText.setText(suggestionsTextString);
+	}
+
+	/** Private helper that updates a string of a user's news feed, posted to a text pane.
+	 * Only the posts delivered since the last refresh are read from the feed, and only the newest page is displayed,
+	 * newest first.
+	 */
 	private void updatePostText() {
+		NewsFeed feed = user.getNewsFeed();
+		if (feed.getCursor() - feedCursor > NEWS_FEED_PAGE_SIZE) {
+			feedCursor = feed.getCursor() - NEWS_FEED_PAGE_SIZE;
+		}
+
+		FeedPage newPosts = feed.getSince(feedCursor, NEWS_FEED_PAGE_SIZE);
+		for (Post post : newPosts) {
+			displayedPosts.addFirst(formatPost(post));
+		}
+		while (displayedPosts.size() > NEWS_FEED_PAGE_SIZE) {
+			displayedPosts.removeLast();
+		}
+		feedCursor = newPosts.getNewerCursor();
+
 		String postTextString = "News Feed";
-		for (String post : user.getNewsFeed()) {
+		for (String post : displayedPosts) {
 			postTextString += "\n";
 			postTextString += post;
 		}
 		newsFeed.setText(postTextString);
 	}
 
+	/** Private helper that formats a shared post as "author: message" for display */
+	private String formatPost(Post post) {
+		return post.getAuthor().getName() + ": " + post.getMessage();
+	}
+
 	/** Private helper updating the latest time pane */
 	private void updateLastTime() {
 		lastUpdatedTime.setText("");
@@ -110,6 +152,7 @@ public class UserView
 							User addedUser = potentialUser;
 							user.followUser(addedUser);
 							updateFollowingText();
+							updateSuggestionsText();
 							enterUserID.setText("");
 						}
 					}
@@ -138,6 +181,19 @@ public class UserView
 		return followingPanel;
 	}
 
+	/** Returns a panel with a text pane that displays follow suggestions from the users this user follows */
+	public JPanel getSuggestionsPanel() {
+		JPanel suggestionsPanel = new JPanel();
+		suggestionsPanel.setLayout(new GridLayout(1, 1));
+
+		suggestionsText = new JTextPane();
+		updateSuggestionsText();
+
+		suggestionsPanel.add(suggestionsText);
+
+		return suggestionsPanel;
+	}
+
 	/** Returns a panel that allows this user to post a message to it's followers' news feeds */
 	public JPanel getPostButtonPanel() {
 		JPanel postButtonPanel = new JPanel();